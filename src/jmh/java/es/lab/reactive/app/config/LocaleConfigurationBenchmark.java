@@ -0,0 +1,44 @@
+package es.lab.reactive.app.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving the locale of a request from the cookie of the Angular client, with
+ * {@link LocaleConfiguration.AngularCookieLocaleContextResolver}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocaleConfigurationBenchmark {
+
+    @Param({"%22es%22", "%22en-US Europe/Madrid%22"})
+    private String cookie;
+
+    private LocaleConfiguration.AngularCookieLocaleContextResolver localeContextResolver;
+
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setup() {
+        localeContextResolver = new LocaleConfiguration.AngularCookieLocaleContextResolver();
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/account")
+            .cookie(new HttpCookie("NG_TRANSLATE_LANG_KEY", cookie)));
+    }
+
+    @Benchmark
+    public Locale resolveLocaleContext() {
+        // The parsed locale is cached in the attributes of the exchange
+        exchange.getAttributes().clear();
+        return localeContextResolver.resolveLocaleContext(exchange).getLocale();
+    }
+}
@@ -0,0 +1,38 @@
+package es.lab.reactive.app.config.audit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting the data of a persisted audit event, as done for each audit event read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditEventConverterBenchmark {
+
+    private AuditEventConverter auditEventConverter;
+
+    private Map<String, String> data;
+
+    @Setup
+    public void setup() {
+        auditEventConverter = new AuditEventConverter();
+        data = new HashMap<>();
+        data.put("remoteAddress", "127.0.0.1");
+        data.put("sessionId", "8D6C4E1F2A3B5C7D9E0F1A2B3C4D5E6F");
+        data.put("type", "org.springframework.security.authentication.BadCredentialsException");
+        data.put("message", "Bad credentials");
+    }
+
+    @Benchmark
+    public Map<String, Object> convertDataToObjects() {
+        return auditEventConverter.convertDataToObjects(data);
+    }
+}
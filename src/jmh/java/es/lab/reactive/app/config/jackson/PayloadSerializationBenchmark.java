@@ -0,0 +1,88 @@
+package es.lab.reactive.app.config.jackson;
+
+import es.lab.reactive.app.config.JacksonConfiguration;
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.domain.Post;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.service.dto.UserDTO;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing the most frequently returned payloads with the bean serializer and with the serializers of
+ * {@link JacksonConfiguration#payloadSerializersModule()}.
+ * <p>
+ * Run with {@code -prof gc} to get the allocation per operation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadSerializationBenchmark {
+
+    private ObjectMapper beanMapper;
+
+    private ObjectMapper mapper;
+
+    private UserDTO userDTO;
+
+    private Post post;
+
+    @Setup
+    public void setup() {
+        beanMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper = beanMapper.copy().registerModule(new JacksonConfiguration().payloadSerializersModule());
+
+        User user = new User();
+        user.setId("5e9f1c2b8a1d4b00123456789");
+        user.setLogin("user");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setEmail("user@example.com");
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setCreatedBy("system");
+        user.setCreatedDate(Instant.parse("2020-01-01T10:00:00Z"));
+        user.setLastModifiedBy("system");
+        user.setLastModifiedDate(Instant.parse("2020-01-02T10:00:00Z"));
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user.getAuthorities().add(authority);
+        userDTO = new UserDTO(user);
+        post = new Post().title("A post title").content("Some content of the post, long enough to be realistic.")
+            .date(Instant.parse("2020-01-01T10:00:00Z"));
+        post.setId("5e9f1c2b8a1d4b0012345678");
+    }
+
+    @Benchmark
+    public byte[] userDTOBeanSerializer() throws JsonProcessingException {
+        return beanMapper.writeValueAsBytes(userDTO);
+    }
+
+    @Benchmark
+    public byte[] userDTOSerializer() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(userDTO);
+    }
+
+    @Benchmark
+    public byte[] postBeanSerializer() throws JsonProcessingException {
+        return beanMapper.writeValueAsBytes(post);
+    }
+
+    @Benchmark
+    public byte[] postSerializer() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(post);
+    }
+}
@@ -0,0 +1,80 @@
+package es.lab.reactive.app.security.jwt;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.repository.AuthorityRepository;
+import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.AuthorityRegistry;
+
+import io.github.jhipster.config.JHipsterProperties;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures issuing a JWT, and validating one and reading its authentication, as done for each authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private static final String BASE64_SECRET = "ZDdlNjNlNTkxOGU1YWU4YjFlMTk4ZGM4Zjg1ZmRiNzExMWQ3ZjVmYzc3NTZhMGViNGFkZWRlNWYzNTI1ZjNhNzYwOGMxM2NjZWJiZTBmNTY5OGZlMmZiNzdlODI5MDIwNGU1ODMzZTEzZDQ4MzdlNzQ5OTdhMDZjNDY4YjFmNDY=";
+
+    private TokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        AuthorityRepository authorityRepository = mock(AuthorityRepository.class);
+        when(authorityRepository.findAll()).thenReturn(Flux.just(
+            createAuthority(AuthoritiesConstants.ADMIN, 0), createAuthority(AuthoritiesConstants.USER, 1)));
+        AuthorityRegistry authorityRegistry = new AuthorityRegistry(authorityRepository);
+        authorityRegistry.refresh().block();
+
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), authorityRegistry);
+        tokenProvider.init();
+
+        authentication = new UsernamePasswordAuthenticationToken("user", "user",
+            Arrays.asList(new SimpleGrantedAuthority(AuthoritiesConstants.USER), new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)));
+        token = tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    private static Authority createAuthority(String name, int ordinal) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        authority.setOrdinal(ordinal);
+        return authority;
+    }
+}
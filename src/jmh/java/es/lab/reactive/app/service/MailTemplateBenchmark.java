@@ -0,0 +1,84 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.domain.User;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering an activation mail with {@link MailTemplateCache} to a full {@link SpringTemplateEngine} rendering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailTemplateBenchmark {
+
+    private static final String TEMPLATE = "mail/activationEmail";
+
+    private static final String TITLE_KEY = "email.activation.title";
+
+    private static final String BASE_URL = "http://127.0.0.1:8080";
+
+    @Param({"en", "es"})
+    private String langKey;
+
+    private Locale locale;
+
+    private SpringTemplateEngine templateEngine;
+
+    private MessageSource messageSource;
+
+    private MailTemplateCache mailTemplateCache;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ResourceBundleMessageSource resourceBundleMessageSource = new ResourceBundleMessageSource();
+        resourceBundleMessageSource.setBasename("i18n/messages");
+        resourceBundleMessageSource.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        resourceBundleMessageSource.setUseCodeAsDefaultMessage(true);
+        messageSource = resourceBundleMessageSource;
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+        mailTemplateCache = new MailTemplateCache(templateEngine, messageSource, BASE_URL);
+
+        locale = Locale.forLanguageTag(langKey);
+        user = new User();
+        user.setLogin("john.doe");
+        user.setEmail("john.doe@example.com");
+        user.setLangKey(langKey);
+        user.setActivationKey("12345678901234567890");
+    }
+
+    @Benchmark
+    public String templateEngine() {
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", BASE_URL);
+        return messageSource.getMessage(TITLE_KEY, null, locale) + templateEngine.process(TEMPLATE, context);
+    }
+
+    @Benchmark
+    public String mailTemplateCache() {
+        return mailTemplateCache.getSubject(TITLE_KEY, locale) + mailTemplateCache.render(TEMPLATE, user, locale);
+    }
+}
@@ -0,0 +1,67 @@
+package es.lab.reactive.app.service.mapper;
+
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.service.dto.UserDTO;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping a page of users to {@link UserDTO}s and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    @Param({"20"})
+    private int size;
+
+    private UserMapper userMapper;
+
+    private List<User> users;
+
+    private List<UserDTO> userDTOs;
+
+    @Setup
+    public void setup() {
+        userMapper = new UserMapper();
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User();
+            user.setId("5e9f1c2b8a1d4b0012345" + i);
+            user.setLogin("user" + i);
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setActivated(true);
+            user.setLangKey("en");
+            user.setCreatedBy("system");
+            user.setCreatedDate(Instant.parse("2020-01-01T10:00:00Z"));
+            Authority authority = new Authority();
+            authority.setName(AuthoritiesConstants.USER);
+            user.getAuthorities().add(authority);
+            users.add(user);
+        }
+        userDTOs = userMapper.usersToUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<UserDTO> usersToUserDTOs() {
+        return userMapper.usersToUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<User> userDTOsToUsers() {
+        return userMapper.userDTOsToUsers(userDTOs);
+    }
+}
@@ -0,0 +1,44 @@
+package es.lab.reactive.app.web.filter;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the path matching of {@link SpaWebFilter}, which runs for every request: an API call, a static
+ * resource, and a client route forwarded to {@code index.html}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpaWebFilterBenchmark {
+
+    @Param({"/api/account", "/content/main.css", "/admin/user-management"})
+    private String path;
+
+    private SpaWebFilter spaWebFilter;
+
+    private ServerWebExchange exchange;
+
+    private WebFilterChain chain;
+
+    @Setup
+    public void setup() {
+        spaWebFilter = new SpaWebFilter();
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        chain = filtered -> Mono.empty();
+    }
+
+    @Benchmark
+    public Mono<Void> filter() {
+        return spaWebFilter.filter(exchange, chain);
+    }
+}
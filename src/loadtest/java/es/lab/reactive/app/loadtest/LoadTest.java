@@ -0,0 +1,272 @@
+package es.lab.reactive.app.loadtest;
+
+import es.lab.reactive.app.ReactiveApp;
+import es.lab.reactive.app.security.AuthorityRegistry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end load test of the application.
+ * <p>
+ * The application is started with the test configuration, so against an embedded MongoDB, and seeded with
+ * {@code loadtest.users}, {@code loadtest.posts}, {@code loadtest.blogs} and {@code loadtest.tags} documents. Each
+ * scenario of {@code loadtest.scenarios} is then run by {@code loadtest.concurrency} concurrent clients, first for
+ * {@code loadtest.warmup-seconds} without measuring, then for {@code loadtest.duration-seconds}. The throughput and
+ * the latency percentiles of each scenario are logged and written to {@code loadtest.result}, to be compared between
+ * runs on the same machine. The posts created by a scenario are removed after each of its runs, so that every
+ * scenario reads the seeded data only.
+ * <p>
+ * The scenarios are:
+ * <ul>
+ * <li>{@code login}: authenticate as a random seeded user;</li>
+ * <li>{@code list}: get a random page of 20 users, as an administrator;</li>
+ * <li>{@code get}: get a random post;</li>
+ * <li>{@code create}: create a post;</li>
+ * <li>{@code stream}: stream all the posts as JSON lines.</li>
+ * </ul>
+ * Settings are read from the Spring environment, for example {@code -Dloadtest.concurrency=64}.
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String ADMIN_LOGIN = "admin";
+
+    private static final String ADMIN_PASSWORD = "admin";
+
+    private static final int PAGE_SIZE = 20;
+
+    private final Environment env;
+
+    private final LoadTestData data;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final AuthorityRegistry authorityRegistry;
+
+    private final WebClient webClient;
+
+    private final int concurrency;
+
+    private String adminAuthorization;
+
+    LoadTest(ConfigurableApplicationContext context) {
+        this.env = context.getEnvironment();
+        this.data = new LoadTestData(context.getBean(ReactiveMongoTemplate.class));
+        this.passwordEncoder = context.getBean(PasswordEncoder.class);
+        this.authorityRegistry = context.getBean(AuthorityRegistry.class);
+        this.concurrency = env.getProperty("loadtest.concurrency", Integer.class, 32);
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.create("loadtest", concurrency));
+        this.webClient = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .baseUrl("http://localhost:" + env.getRequiredProperty("local.server.port"))
+            .build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        SpringApplication app = new SpringApplication(ReactiveApp.class);
+        Map<String, Object> defaultProperties = new HashMap<>();
+        defaultProperties.put("server.port", 0);
+        // Logins would otherwise be throttled
+        defaultProperties.put("application.security.rate-limit.enabled", false);
+        app.setDefaultProperties(defaultProperties);
+        try (ConfigurableApplicationContext context = app.run(args)) {
+            new LoadTest(context).run();
+        }
+    }
+
+    void run() throws IOException {
+        data.seed(env.getProperty("loadtest.users", Integer.class, 1000), env.getProperty("loadtest.posts", Integer.class, 1000),
+            env.getProperty("loadtest.blogs", Integer.class, 100), env.getProperty("loadtest.tags", Integer.class, 100),
+            passwordEncoder, authorityRegistry);
+        adminAuthorization = authenticate(ADMIN_LOGIN, ADMIN_PASSWORD).block();
+        Duration warmup = Duration.ofSeconds(env.getProperty("loadtest.warmup-seconds", Integer.class, 10));
+        Duration duration = Duration.ofSeconds(env.getProperty("loadtest.duration-seconds", Integer.class, 30));
+
+        Map<String, Supplier<Mono<Boolean>>> scenarios = getScenarios();
+        List<ScenarioResult> results = new ArrayList<>();
+        for (String name : env.getProperty("loadtest.scenarios", String[].class, scenarios.keySet().toArray(new String[0]))) {
+            Supplier<Mono<Boolean>> scenario = scenarios.get(name.trim());
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name + ", expected one of " + scenarios.keySet());
+            }
+            log.info("Running scenario {} with {} clients", name, concurrency);
+            run(name, scenario, warmup);
+            ScenarioResult result = run(name, scenario, duration);
+            log.info("{}", result);
+            results.add(result);
+        }
+        report(results);
+    }
+
+    private Map<String, Supplier<Mono<Boolean>>> getScenarios() {
+        Map<String, Supplier<Mono<Boolean>>> scenarios = new LinkedHashMap<>();
+        scenarios.put("login", () -> authenticate(random(data.getLogins()), LoadTestData.PASSWORD).hasElement());
+        scenarios.put("list", () -> succeeded(webClient.get()
+            .uri("/api/users?page={page}&size={size}", ThreadLocalRandom.current().nextInt(Math.max(data.getLogins().size() / PAGE_SIZE, 1)), PAGE_SIZE)
+            .header(HttpHeaders.AUTHORIZATION, adminAuthorization)));
+        scenarios.put("get", () -> succeeded(webClient.get()
+            .uri("/api/posts/{id}", random(data.getPostIds()))
+            .header(HttpHeaders.AUTHORIZATION, adminAuthorization)));
+        scenarios.put("create", () -> succeeded(webClient.post()
+            .uri("/api/posts")
+            .header(HttpHeaders.AUTHORIZATION, adminAuthorization)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(newPost())));
+        scenarios.put("stream", () -> succeeded(webClient.get()
+            .uri("/api/posts")
+            .accept(MediaType.APPLICATION_STREAM_JSON)
+            .header(HttpHeaders.AUTHORIZATION, adminAuthorization)));
+        return scenarios;
+    }
+
+    private ScenarioResult run(String name, Supplier<Mono<Boolean>> scenario, Duration duration) {
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        Flux.range(0, concurrency)
+            .flatMap(client -> Mono.defer(() -> timed(scenario, histogram, errors))
+                .repeat(() -> System.nanoTime() < deadline), concurrency)
+            .blockLast();
+        ScenarioResult result = new ScenarioResult(name, histogram, errors.get(), System.nanoTime() - start);
+        // The posts created by a run would otherwise be streamed by the next ones
+        data.removeCreatedPosts();
+        return result;
+    }
+
+    private static Mono<Void> timed(Supplier<Mono<Boolean>> scenario, Histogram histogram, AtomicLong errors) {
+        long start = System.nanoTime();
+        return scenario.get()
+            .onErrorReturn(false)
+            .doOnNext(succeeded -> {
+                histogram.recordValue((System.nanoTime() - start) / 1000);
+                if (!succeeded) {
+                    errors.incrementAndGet();
+                }
+            })
+            .then();
+    }
+
+    /**
+     * @return the {@code Authorization} header to use, or an empty {@link Mono} if the authentication failed.
+     */
+    private Mono<String> authenticate(String login, String password) {
+        Map<String, Object> loginVM = new HashMap<>();
+        loginVM.put("username", login);
+        loginVM.put("password", password);
+        loginVM.put("rememberMe", false);
+        return webClient.post()
+            .uri("/api/authenticate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(loginVM)
+            .exchange()
+            .flatMap(response -> response.bodyToMono(Void.class)
+                .then(Mono.justOrEmpty(response.headers().asHttpHeaders().getFirst(HttpHeaders.AUTHORIZATION))));
+    }
+
+    /**
+     * Read the whole response, and tell whether it was successful.
+     */
+    private static Mono<Boolean> succeeded(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchange()
+            .flatMap(response -> response.bodyToMono(Void.class).thenReturn(response.statusCode().is2xxSuccessful()));
+    }
+
+    private static Map<String, Object> newPost() {
+        Map<String, Object> post = new HashMap<>();
+        post.put("title", "Load test post");
+        post.put("content", "Created by the load test");
+        post.put("date", Instant.now().toString());
+        return post;
+    }
+
+    private static String random(List<String> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private void report(List<ScenarioResult> results) throws IOException {
+        File file = new File(env.getProperty("loadtest.result", "target/loadtest-result.json"));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("concurrency", concurrency);
+        report.put("scenarios", results.stream().map(ScenarioResult::toMap).toArray());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+        log.info("Load test results written to {}", file.getAbsolutePath());
+    }
+
+    private static final class ScenarioResult {
+
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+        private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+        private final String name;
+
+        private final Histogram histogram;
+
+        private final long errors;
+
+        private final long elapsedNanos;
+
+        private ScenarioResult(String name, Histogram histogram, long errors, long elapsedNanos) {
+            this.name = name;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        private double getThroughput() {
+            return histogram.getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("name", name);
+            result.put("requests", histogram.getTotalCount());
+            result.put("errors", errors);
+            result.put("throughput", getThroughput());
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                latencies.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0);
+            }
+            latencies.put("max", histogram.getMaxValue() / 1000.0);
+            result.put("latencyMs", latencies);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d requests, %d errors, %.1f req/s, latency p50 %.2f ms, p90 %.2f ms, "
+                    + "p99 %.2f ms, p99.9 %.2f ms, max %.2f ms", name, histogram.getTotalCount(), errors, getThroughput(),
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package es.lab.reactive.app.loadtest;
+
+import es.lab.reactive.app.domain.Blog;
+import es.lab.reactive.app.domain.Post;
+import es.lab.reactive.app.domain.Tag;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.AuthorityRegistry;
+
+import com.mongodb.client.result.DeleteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Seeds the database of a load test with users, posts, blogs and tags.
+ * <p>
+ * All the seeded users share the {@link #PASSWORD} password, hashed once.
+ */
+class LoadTestData {
+
+    static final String PASSWORD = "loadtest";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(LoadTestData.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final List<String> logins = new ArrayList<>();
+
+    private final List<String> postIds = new ArrayList<>();
+
+    LoadTestData(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    void seed(int users, int posts, int blogs, int tags, PasswordEncoder passwordEncoder, AuthorityRegistry authorityRegistry) {
+        long start = System.nanoTime();
+        String password = passwordEncoder.encode(PASSWORD);
+        insert(users, i -> {
+            User user = new User();
+            user.setLogin("loadtest-" + i);
+            user.setEmail("loadtest-" + i + "@localhost");
+            user.setFirstName("Load");
+            user.setLastName("Test " + i);
+            user.setPassword(password);
+            user.setActivated(true);
+            user.setLangKey("en");
+            user.setCreatedBy("loadtest");
+            authorityRegistry.getAuthority(AuthoritiesConstants.USER).ifPresent(user.getAuthorities()::add);
+            return user;
+        }).map(User::getLogin).toIterable().forEach(logins::add);
+        insert(posts, i -> new Post().title("Post " + i).content(content(i)).date(Instant.now()))
+            .map(Post::getId).toIterable().forEach(postIds::add);
+        insert(blogs, i -> new Blog().name("Blog " + i).handle("blog-" + i)).blockLast();
+        insert(tags, i -> new Tag().name("tag-" + i)).blockLast();
+        log.info("Seeded {} users, {} posts, {} blogs and {} tags in {} ms", users, posts, blogs, tags,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Remove the posts created since the seeding, so that the next scenario runs against the seeded posts only.
+     */
+    void removeCreatedPosts() {
+        long removed = mongoTemplate.remove(query(where("id").nin(postIds)), Post.class)
+            .map(DeleteResult::getDeletedCount)
+            .block();
+        log.debug("Removed {} created posts", removed);
+    }
+
+    List<String> getLogins() {
+        return Collections.unmodifiableList(logins);
+    }
+
+    List<String> getPostIds() {
+        return Collections.unmodifiableList(postIds);
+    }
+
+    private <T> Flux<T> insert(int count, IntFunction<T> factory) {
+        return Flux.range(0, count)
+            .map(factory::apply)
+            .buffer(BATCH_SIZE)
+            .concatMap(mongoTemplate::insertAll);
+    }
+
+    private static String content(int i) {
+        StringBuilder content = new StringBuilder(512);
+        while (content.length() < 500) {
+            content.append("Content of post ").append(i).append(". ");
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package es.lab.reactive.app.aop.metrics;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Aspect timing the {@link Mono} and {@link Flux} methods of services and repositories.
+ * <p>
+ * Calling such a method only assembles the publisher, so the {@code method.reactive} timer measures from the
+ * subscription to the termination of the publisher, tagged by class, method and outcome: {@code success},
+ * {@code error} or {@code cancelled}. The {@code method.reactive.elements} summary counts the elements emitted by
+ * each {@link Flux}. Only {@code application.metrics.method-timing.sample-rate} of the calls are timed, the others
+ * are returned untouched, so the counts of these meters are those of the sampled calls and must not be read as call
+ * rates. The timer of an outcome is only published once a call has had that outcome.
+ */
+@Aspect
+public class MethodTimingAspect {
+
+    static final String TIMER_NAME = "method.reactive";
+
+    static final String ELEMENTS_NAME = "method.reactive.elements";
+
+    private static final String[] OUTCOMES = {"success", "error", "cancelled"};
+
+    private static final int SUCCESS = 0;
+
+    private static final int ERROR = 1;
+
+    private static final int CANCELLED = 2;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.Metrics.MethodTiming properties;
+
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public MethodTimingAspect(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getMetrics().getMethodTiming();
+    }
+
+    /**
+     * Pointcut that matches the reactive methods of the application's services and repositories, including the
+     * query methods of the Spring Data repository interfaces.
+     */
+    @Pointcut("execution((reactor.core.publisher.Mono || reactor.core.publisher.Flux) es.lab.reactive.app.service..*.*(..))" +
+        " || execution((reactor.core.publisher.Mono || reactor.core.publisher.Flux) es.lab.reactive.app.repository..*.*(..))")
+    public void reactiveMethodPointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Advice that times the publisher returned by a method, for a sample of the calls.
+     *
+     * @param joinPoint join point for advice.
+     * @return the publisher returned by the method, timed if the call is sampled.
+     * @throws Throwable throws the exception of the method.
+     */
+    @Around("reactiveMethodPointcut()")
+    public Object timeAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        if (properties.getSampleRate() < 1 && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return result;
+        }
+        if (result instanceof Mono) {
+            MethodMeters methodMeters = getMeters(joinPoint);
+            Mono<?> mono = (Mono<?>) result;
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return mono.doFinally(signal -> methodMeters.record(signal, start));
+            });
+        }
+        if (result instanceof Flux) {
+            MethodMeters methodMeters = getMeters(joinPoint);
+            Flux<?> flux = (Flux<?>) result;
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                long[] elements = new long[1];
+                return flux
+                    .doOnNext(element -> elements[0]++)
+                    .doFinally(signal -> {
+                        methodMeters.record(signal, start);
+                        methodMeters.elements.record(elements[0]);
+                    });
+            });
+        }
+        return result;
+    }
+
+    private MethodMeters getMeters(ProceedingJoinPoint joinPoint) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return meters.computeIfAbsent(signature.getMethod(),
+            method -> new MethodMeters(signature.getDeclaringType().getSimpleName(), method.getName(),
+                Flux.class.isAssignableFrom(method.getReturnType())));
+    }
+
+    /**
+     * Meters of a method. The outcome timers are registered on their first use, as most methods never fail nor are
+     * cancelled; registering a timer again returns the same one, so threads racing to register it are harmless.
+     */
+    private final class MethodMeters {
+
+        private final String className;
+
+        private final String methodName;
+
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(OUTCOMES.length);
+
+        private final DistributionSummary elements;
+
+        private MethodMeters(String className, String methodName, boolean flux) {
+            this.className = className;
+            this.methodName = methodName;
+            this.elements = !flux ? null : DistributionSummary.builder(ELEMENTS_NAME)
+                .description("Elements emitted by the Flux returned by a method, for the sampled calls only")
+                .tag("class", className)
+                .tag("method", methodName)
+                .register(meterRegistry);
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder(TIMER_NAME)
+                .description("Time from the subscription to the termination of the publisher returned by a method,"
+                    + " for the sampled calls only")
+                .tag("class", className)
+                .tag("method", methodName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram(properties.isPercentileHistogram())
+                .register(meterRegistry);
+        }
+
+        private void record(SignalType signal, long start) {
+            long elapsedNanos = System.nanoTime() - start;
+            int outcome = signal == SignalType.ON_ERROR ? ERROR : signal == SignalType.CANCEL ? CANCELLED : SUCCESS;
+            Timer timer = timers.get(outcome);
+            if (timer == null) {
+                timer = timer(OUTCOMES[outcome]);
+                timers.set(outcome, timer);
+            }
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
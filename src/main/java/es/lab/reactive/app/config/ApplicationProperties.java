@@ -2,6 +2,10 @@ package es.lab.reactive.app.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Properties specific to Reactive App.
  * <p>
@@ -10,4 +14,643 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Security security = new Security();
+
+    private final AuditEvents auditEvents = new AuditEvents();
+
+    private final Pagination pagination = new Pagination();
+
+    private final Mail mail = new Mail();
+
+    private final Provisioning provisioning = new Provisioning();
+
+    private final Metrics metrics = new Metrics();
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public AuditEvents getAuditEvents() {
+        return auditEvents;
+    }
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Mail getMail() {
+        return mail;
+    }
+
+    public Provisioning getProvisioning() {
+        return provisioning;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public static class Metrics {
+
+        private final MethodTiming methodTiming = new MethodTiming();
+
+        private final Mongo mongo = new Mongo();
+
+        public MethodTiming getMethodTiming() {
+            return methodTiming;
+        }
+
+        public Mongo getMongo() {
+            return mongo;
+        }
+
+        public static class Mongo {
+
+            /**
+             * Whether the commands and connection pools of the MongoDB driver are measured.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Commands taking longer than this, in milliseconds, are logged; 0 disables the logging.
+             */
+            private long slowCommandThresholdMs = 100;
+
+            /**
+             * Whether the command timers publish a histogram, from which percentiles can be aggregated across instances.
+             */
+            private boolean percentileHistogram = true;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getSlowCommandThresholdMs() {
+                return slowCommandThresholdMs;
+            }
+
+            public void setSlowCommandThresholdMs(long slowCommandThresholdMs) {
+                this.slowCommandThresholdMs = slowCommandThresholdMs;
+            }
+
+            public boolean isPercentileHistogram() {
+                return percentileHistogram;
+            }
+
+            public void setPercentileHistogram(boolean percentileHistogram) {
+                this.percentileHistogram = percentileHistogram;
+            }
+        }
+
+        public static class MethodTiming {
+
+            /**
+             * Whether the reactive methods of services and repositories are timed.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Share of the calls that are timed, between 0 and 1.
+             */
+            private double sampleRate = 0.1;
+
+            /**
+             * Whether the timers publish a histogram, from which percentiles can be aggregated across instances.
+             */
+            private boolean percentileHistogram = true;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public double getSampleRate() {
+                return sampleRate;
+            }
+
+            public void setSampleRate(double sampleRate) {
+                this.sampleRate = sampleRate;
+            }
+
+            public boolean isPercentileHistogram() {
+                return percentileHistogram;
+            }
+
+            public void setPercentileHistogram(boolean percentileHistogram) {
+                this.percentileHistogram = percentileHistogram;
+            }
+        }
+    }
+
+    public static class Mail {
+
+        private final Outbox outbox = new Outbox();
+
+        /**
+         * Languages the mail templates are prepared for at startup.
+         */
+        private List<String> languages = new ArrayList<>(Arrays.asList("es", "en"));
+
+        /**
+         * Maximum number of emails waiting to be rendered and stored in the outbox; further emails are discarded.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Number of emails rendered and stored in the outbox at the same time.
+         */
+        private int concurrency = 16;
+
+        /**
+         * Delay, in milliseconds, after which an email that is not stored in the outbox yet is given up.
+         */
+        private long timeoutMs = 10000;
+
+        /**
+         * Delay, in milliseconds, during which repeated password reset requests reuse the outstanding reset key and
+         * send no other email.
+         */
+        private long resetCoalescingWindowMs = 300000;
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        public long getResetCoalescingWindowMs() {
+            return resetCoalescingWindowMs;
+        }
+
+        public void setResetCoalescingWindowMs(long resetCoalescingWindowMs) {
+            this.resetCoalescingWindowMs = resetCoalescingWindowMs;
+        }
+
+        public List<String> getLanguages() {
+            return languages;
+        }
+
+        public void setLanguages(List<String> languages) {
+            this.languages = languages;
+        }
+
+        public static class Outbox {
+
+            /**
+             * Delay, in milliseconds, between two checks for mails to send.
+             */
+            private long pollIntervalMs = 1000;
+
+            /**
+             * Number of workers sending mails in parallel, each with its own SMTP connection.
+             */
+            private int concurrency = 2;
+
+            /**
+             * Maximum number of mails sent over a single SMTP connection.
+             */
+            private int batchSize = 50;
+
+            /**
+             * Number of attempts after which a mail is abandoned.
+             */
+            private int maxAttempts = 5;
+
+            /**
+             * Delay, in milliseconds, before the first retry; it doubles with every attempt.
+             */
+            private long initialBackoffMs = 30000;
+
+            private long maxBackoffMs = 3600000;
+
+            /**
+             * Delay, in milliseconds, after which a mail claimed by a worker that didn't report back is sent again.
+             */
+            private long leaseMs = 300000;
+
+            public long getPollIntervalMs() {
+                return pollIntervalMs;
+            }
+
+            public void setPollIntervalMs(long pollIntervalMs) {
+                this.pollIntervalMs = pollIntervalMs;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getInitialBackoffMs() {
+                return initialBackoffMs;
+            }
+
+            public void setInitialBackoffMs(long initialBackoffMs) {
+                this.initialBackoffMs = initialBackoffMs;
+            }
+
+            public long getMaxBackoffMs() {
+                return maxBackoffMs;
+            }
+
+            public void setMaxBackoffMs(long maxBackoffMs) {
+                this.maxBackoffMs = maxBackoffMs;
+            }
+
+            public long getLeaseMs() {
+                return leaseMs;
+            }
+
+            public void setLeaseMs(long leaseMs) {
+                this.leaseMs = leaseMs;
+            }
+        }
+    }
+
+    public static class Provisioning {
+
+        /**
+         * Number of rows checked and inserted together when creating users in bulk.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Number of passwords hashed at the same time when creating users in bulk.
+         */
+        private int hashingConcurrency = Runtime.getRuntime().availableProcessors();
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getHashingConcurrency() {
+            return hashingConcurrency;
+        }
+
+        public void setHashingConcurrency(int hashingConcurrency) {
+            this.hashingConcurrency = hashingConcurrency;
+        }
+    }
+
+    public static class Pagination {
+
+        /**
+         * How long, in milliseconds, the total counts of the admin listings are cached.
+         */
+        private long countCacheTtlMs = 10000;
+
+        /**
+         * Whether total counts come from the collection metadata, which is instantaneous but only approximate.
+         */
+        private boolean estimatedCount = false;
+
+        public long getCountCacheTtlMs() {
+            return countCacheTtlMs;
+        }
+
+        public void setCountCacheTtlMs(long countCacheTtlMs) {
+            this.countCacheTtlMs = countCacheTtlMs;
+        }
+
+        public boolean isEstimatedCount() {
+            return estimatedCount;
+        }
+
+        public void setEstimatedCount(boolean estimatedCount) {
+            this.estimatedCount = estimatedCount;
+        }
+    }
+
+    public static class AuditEvents {
+
+        /**
+         * What to do with an audit event when the write queue is full.
+         */
+        public enum OverflowPolicy {
+            /**
+             * Discard the new event.
+             */
+            DROP_NEWEST,
+            /**
+             * Discard the oldest queued event to make room for the new one.
+             */
+            DROP_OLDEST,
+            /**
+             * Write the new event directly, making the caller wait for it.
+             */
+            WRITE_THROUGH
+        }
+
+        /**
+         * How audit events are stored.
+         */
+        public enum Storage {
+            /**
+             * In the {@code jhi_persistent_audit_event} collection.
+             */
+            SINGLE_COLLECTION,
+            /**
+             * In one collection per month, so that date range queries and retention only touch the months involved.
+             */
+            MONTHLY_PARTITIONS
+        }
+
+        /**
+         * Maximum number of audit events waiting to be written.
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * Number of audit events written in a single insert; a full batch triggers a write.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Delay, in milliseconds, after which queued audit events are written even if the batch is not full.
+         */
+        private long flushIntervalMs = 1000;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        private Storage storage = Storage.SINGLE_COLLECTION;
+
+        /**
+         * Number of the latest audit events kept in memory for {@code /management/audits/recent}.
+         */
+        private int recentCapacity = 256;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public Storage getStorage() {
+            return storage;
+        }
+
+        public void setStorage(Storage storage) {
+            this.storage = storage;
+        }
+
+        public int getRecentCapacity() {
+            return recentCapacity;
+        }
+
+        public void setRecentCapacity(int recentCapacity) {
+            this.recentCapacity = recentCapacity;
+        }
+    }
+
+    public static class Security {
+
+        private final Revocation revocation = new Revocation();
+
+        private final RefreshToken refreshToken = new RefreshToken();
+
+        private final RateLimit rateLimit = new RateLimit();
+
+        public Revocation getRevocation() {
+            return revocation;
+        }
+
+        public RefreshToken getRefreshToken() {
+            return refreshToken;
+        }
+
+        public RateLimit getRateLimit() {
+            return rateLimit;
+        }
+
+        public static class Revocation {
+
+            /**
+             * Number of revoked tokens the Bloom filter is sized for; it grows when rebuilt with more entries.
+             */
+            private int expectedInsertions = 10000;
+
+            /**
+             * Target false positive probability of the Bloom filter.
+             */
+            private double falsePositiveProbability = 0.01;
+
+            /**
+             * Delay, in milliseconds, between two rebuilds of the Bloom filter from the database.
+             */
+            private long rebuildIntervalMs = 60000;
+
+            public int getExpectedInsertions() {
+                return expectedInsertions;
+            }
+
+            public void setExpectedInsertions(int expectedInsertions) {
+                this.expectedInsertions = expectedInsertions;
+            }
+
+            public double getFalsePositiveProbability() {
+                return falsePositiveProbability;
+            }
+
+            public void setFalsePositiveProbability(double falsePositiveProbability) {
+                this.falsePositiveProbability = falsePositiveProbability;
+            }
+
+            public long getRebuildIntervalMs() {
+                return rebuildIntervalMs;
+            }
+
+            public void setRebuildIntervalMs(long rebuildIntervalMs) {
+                this.rebuildIntervalMs = rebuildIntervalMs;
+            }
+        }
+
+        public static class RefreshToken {
+
+            /**
+             * Whether {@code /api/authenticate} issues short-lived access tokens along with a refresh token.
+             */
+            private boolean enabled = false;
+
+            /**
+             * Validity of the access tokens issued with a refresh token, in seconds.
+             */
+            private long accessTokenValidityInSeconds = 900;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getAccessTokenValidityInSeconds() {
+                return accessTokenValidityInSeconds;
+            }
+
+            public void setAccessTokenValidityInSeconds(long accessTokenValidityInSeconds) {
+                this.accessTokenValidityInSeconds = accessTokenValidityInSeconds;
+            }
+        }
+
+        public static class RateLimit {
+
+            /**
+             * Whether authentication, registration and password reset requests are throttled.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Number of requests a client IP address can burst.
+             */
+            private int ipCapacity = 20;
+
+            /**
+             * Number of requests a client IP address regains per minute.
+             */
+            private int ipRefillPerMinute = 20;
+
+            /**
+             * Number of attempts a login (or email) can burst.
+             */
+            private int loginCapacity = 5;
+
+            /**
+             * Number of attempts a login (or email) regains per minute.
+             */
+            private int loginRefillPerMinute = 5;
+
+            /**
+             * Maximum number of buckets kept per key type; the least recently used ones are evicted first.
+             */
+            private int maxEntries = 100000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getIpCapacity() {
+                return ipCapacity;
+            }
+
+            public void setIpCapacity(int ipCapacity) {
+                this.ipCapacity = ipCapacity;
+            }
+
+            public int getIpRefillPerMinute() {
+                return ipRefillPerMinute;
+            }
+
+            public void setIpRefillPerMinute(int ipRefillPerMinute) {
+                this.ipRefillPerMinute = ipRefillPerMinute;
+            }
+
+            public int getLoginCapacity() {
+                return loginCapacity;
+            }
+
+            public void setLoginCapacity(int loginCapacity) {
+                this.loginCapacity = loginCapacity;
+            }
+
+            public int getLoginRefillPerMinute() {
+                return loginRefillPerMinute;
+            }
+
+            public void setLoginRefillPerMinute(int loginRefillPerMinute) {
+                this.loginRefillPerMinute = loginRefillPerMinute;
+            }
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+        }
+    }
 }
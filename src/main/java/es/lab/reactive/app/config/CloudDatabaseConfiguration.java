@@ -1,12 +1,16 @@
 package es.lab.reactive.app.config;
 
 import com.github.mongobee.Mongobee;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
 
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.domain.util.JSR310DateConverters.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.cloud.Cloud;
 import org.springframework.cloud.CloudException;
 import org.springframework.cloud.config.java.AbstractCloudConfig;
@@ -14,6 +18,7 @@ import org.springframework.cloud.service.ServiceInfo;
 import org.springframework.cloud.service.common.MongoServiceInfo;
 import org.springframework.context.annotation.*;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
@@ -56,8 +61,19 @@ public class CloudDatabaseConfiguration extends AbstractCloudConfig {
         return new MongoCustomConversions(converterList);
     }
 
+    /**
+     * Publishes the command timers and the connection pool gauges of the reactive MongoDB client.
+     */
     @Bean
-    public Mongobee mongobee(MongoDbFactory mongoDbFactory, MongoTemplate mongoTemplate, Cloud cloud) {
+    @ConditionalOnProperty(prefix = "application.metrics.mongo", name = "enabled", matchIfMissing = true)
+    public MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        return builder -> builder
+            .addCommandListener(new MongoCommandMetricsListener(meterRegistry, applicationProperties))
+            .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)));
+    }
+
+    @Bean
+    public Mongobee mongobee(MongoDbFactory mongoDbFactory, MongoTemplate mongoTemplate, Cloud cloud, Environment env) {
         log.debug("Configuring Cloud Mongobee");
         List<ServiceInfo> matchingServiceInfos = cloud.getServiceInfos(MongoDbFactory.class);
 
@@ -69,6 +85,8 @@ public class CloudDatabaseConfiguration extends AbstractCloudConfig {
         Mongobee mongobee = new Mongobee(info.getUri());
         mongobee.setDbName(mongoDbFactory.getDb().getName());
         mongobee.setMongoTemplate(mongoTemplate);
+        // changesets can read the configuration, e.g. the audit events retention period
+        mongobee.setSpringEnvironment(env);
         // package to scan for migrations
         mongobee.setChangeLogsScanPackage("es.lab.reactive.app.config.dbmigrations");
         mongobee.setEnabled(true);
@@ -3,11 +3,15 @@ package es.lab.reactive.app.config;
 import io.github.jhipster.config.JHipsterConstants;
 import com.github.mongobee.Mongobee;
 import com.mongodb.MongoClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
 import io.github.jhipster.domain.util.JSR310DateConverters.DateToZonedDateTimeConverter;
 import io.github.jhipster.domain.util.JSR310DateConverters.ZonedDateTimeToDateConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +19,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
@@ -50,12 +55,25 @@ public class DatabaseConfiguration {
         return new MongoCustomConversions(converters);
     }
 
+    /**
+     * Publishes the command timers and the connection pool gauges of the reactive MongoDB client.
+     */
     @Bean
-    public Mongobee mongobee(MongoClient mongoClient, MongoTemplate mongoTemplate, MongoProperties mongoProperties) {
+    @ConditionalOnProperty(prefix = "application.metrics.mongo", name = "enabled", matchIfMissing = true)
+    public MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        return builder -> builder
+            .addCommandListener(new MongoCommandMetricsListener(meterRegistry, applicationProperties))
+            .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)));
+    }
+
+    @Bean
+    public Mongobee mongobee(MongoClient mongoClient, MongoTemplate mongoTemplate, MongoProperties mongoProperties, Environment env) {
         log.debug("Configuring Mongobee");
         Mongobee mongobee = new Mongobee(mongoClient);
         mongobee.setDbName(mongoProperties.getMongoClientDatabase());
         mongobee.setMongoTemplate(mongoTemplate);
+        // changesets can read the configuration, e.g. the audit events retention period
+        mongobee.setSpringEnvironment(env);
         // package to scan for migrations
         mongobee.setChangeLogsScanPackage("es.lab.reactive.app.config.dbmigrations");
         mongobee.setEnabled(true);
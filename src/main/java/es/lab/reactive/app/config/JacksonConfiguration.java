@@ -1,5 +1,15 @@
 package es.lab.reactive.app.config;
 
+import es.lab.reactive.app.config.jackson.PostSerializer;
+import es.lab.reactive.app.config.jackson.UserDTOSerializer;
+import es.lab.reactive.app.domain.Post;
+import es.lab.reactive.app.service.dto.UserDTO;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -40,4 +50,28 @@ public class JacksonConfiguration {
     public ConstraintViolationProblemModule constraintViolationProblemModule() {
         return new ConstraintViolationProblemModule();
     }
+
+    /*
+     * Serializers of the most frequently returned payloads, writing them without reflection.
+     *
+     * They only replace the bean serializer of their exact class: serializers added to the module would also be used
+     * for subclasses, such as ManagedUserVM, and drop their extra fields.
+     */
+    @Bean
+    public SimpleModule payloadSerializersModule() {
+        SimpleModule module = new SimpleModule("PayloadSerializersModule");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == UserDTO.class) {
+                    return new UserDTOSerializer();
+                }
+                if (beanDesc.getBeanClass() == Post.class) {
+                    return new PostSerializer();
+                }
+                return serializer;
+            }
+        });
+        return module;
+    }
 }
@@ -0,0 +1,20 @@
+package es.lab.reactive.app.config;
+
+import es.lab.reactive.app.aop.metrics.MethodTimingAspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+@Configuration
+@EnableAspectJAutoProxy
+public class MethodTimingAspectConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.metrics.method-timing", name = "enabled", matchIfMissing = true)
+    public MethodTimingAspect methodTimingAspect(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        return new MethodTimingAspect(meterRegistry, applicationProperties);
+    }
+}
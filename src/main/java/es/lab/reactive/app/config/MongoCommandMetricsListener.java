@@ -0,0 +1,126 @@
+package es.lab.reactive.app.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MongoDB driver {@link CommandListener} timing the commands by command name, collection and status in the
+ * {@code mongodb.driver.commands} timer, and logging the commands slower than
+ * {@code application.metrics.mongo.slow-command-threshold-ms}.
+ * <p>
+ * Only the names of the command and collection are logged, never the command itself, which can hold user data.
+ */
+public class MongoCommandMetricsListener implements CommandListener {
+
+    static final String TIMER_NAME = "mongodb.driver.commands";
+
+    private static final String NO_COLLECTION = "none";
+
+    private static final String[] STATUSES = {"SUCCESS", "FAILED"};
+
+    private static final int SUCCESS = 0;
+
+    private static final int FAILED = 1;
+
+    private final Logger log = LoggerFactory.getLogger(MongoCommandMetricsListener.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.Metrics.Mongo properties;
+
+    private final long slowCommandThresholdNanos;
+
+    /**
+     * Collections of the running commands, by request id; the completion events don't carry the command.
+     */
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    /**
+     * Timers by command name, collection and status. A status timer is registered when a command first has that
+     * status, as most commands never fail; registering a timer again returns the same one, so threads racing to
+     * register it are harmless.
+     */
+    private final Map<String, Map<String, AtomicReferenceArray<Timer>>> timers = new ConcurrentHashMap<>();
+
+    public MongoCommandMetricsListener(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getMetrics().getMongo();
+        this.slowCommandThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowCommandThresholdMs());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        collections.put(event.getRequestId(), getCollection(event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    private void record(int requestId, String commandName, long elapsedNanos, boolean succeeded) {
+        String collection = collections.remove(requestId);
+        if (collection == null) {
+            collection = NO_COLLECTION;
+        }
+        getTimer(commandName, collection, succeeded ? SUCCESS : FAILED).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (slowCommandThresholdNanos > 0 && elapsedNanos > slowCommandThresholdNanos) {
+            log.warn("Slow MongoDB command {} on collection {} took {} ms{}", commandName, collection,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), succeeded ? "" : " and failed");
+        }
+    }
+
+    private Timer getTimer(String commandName, String collection, int status) {
+        Map<String, AtomicReferenceArray<Timer>> commandTimers = timers.get(commandName);
+        if (commandTimers == null) {
+            commandTimers = timers.computeIfAbsent(commandName, name -> new ConcurrentHashMap<>());
+        }
+        AtomicReferenceArray<Timer> collectionTimers = commandTimers.get(collection);
+        if (collectionTimers == null) {
+            collectionTimers = commandTimers.computeIfAbsent(collection, name -> new AtomicReferenceArray<>(STATUSES.length));
+        }
+        Timer timer = collectionTimers.get(status);
+        if (timer == null) {
+            timer = timer(commandName, collection, STATUSES[status]);
+            collectionTimers.set(status, timer);
+        }
+        return timer;
+    }
+
+    private Timer timer(String commandName, String collection, String status) {
+        return Timer.builder(TIMER_NAME)
+            .description("Time of the commands sent to MongoDB")
+            .tag("command", commandName)
+            .tag("collection", collection)
+            .tag("status", status)
+            .publishPercentileHistogram(properties.isPercentileHistogram())
+            .register(meterRegistry);
+    }
+
+    /**
+     * Most commands hold their collection as the value of the command name; {@code getMore} holds it in
+     * {@code collection}, and commands not bound to a collection hold a number.
+     */
+    static String getCollection(String commandName, BsonDocument command) {
+        BsonValue collection = command.get("getMore".equals(commandName) ? "collection" : commandName);
+        return collection != null && collection.isString() ? collection.asString().getValue() : NO_COLLECTION;
+    }
+}
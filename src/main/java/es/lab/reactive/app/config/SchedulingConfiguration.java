@@ -0,0 +1,35 @@
+package es.lab.reactive.app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(SchedulingConfiguration.class);
+
+    private final TaskSchedulingProperties taskSchedulingProperties;
+
+    public SchedulingConfiguration(TaskSchedulingProperties taskSchedulingProperties) {
+        this.taskSchedulingProperties = taskSchedulingProperties;
+    }
+
+    /**
+     * Scheduler of the {@code @Scheduled} methods; it has several threads, so that a slow task doesn't delay the
+     * others.
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        log.debug("Creating Task Scheduler");
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(taskSchedulingProperties.getPool().getSize());
+        scheduler.setThreadNamePrefix(taskSchedulingProperties.getThreadNamePrefix());
+        return scheduler;
+    }
+}
@@ -1,8 +1,11 @@
 package es.lab.reactive.app.config;
 
 import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.LoginRateLimiter;
 import es.lab.reactive.app.security.jwt.JWTFilter;
 import es.lab.reactive.app.security.jwt.TokenProvider;
+import es.lab.reactive.app.security.jwt.TokenRevocationService;
+import es.lab.reactive.app.web.filter.LoginRateLimitWebFilter;
 import es.lab.reactive.app.web.filter.SpaWebFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -33,11 +36,19 @@ public class SecurityConfiguration {
 
     private final TokenProvider tokenProvider;
 
+    private final TokenRevocationService tokenRevocationService;
+
+    private final LoginRateLimiter loginRateLimiter;
+
     private final SecurityProblemSupport problemSupport;
 
-    public SecurityConfiguration(ReactiveUserDetailsService userDetailsService, TokenProvider tokenProvider, SecurityProblemSupport problemSupport) {
+    public SecurityConfiguration(ReactiveUserDetailsService userDetailsService, TokenProvider tokenProvider,
+                                 TokenRevocationService tokenRevocationService, LoginRateLimiter loginRateLimiter,
+                                 SecurityProblemSupport problemSupport) {
         this.userDetailsService = userDetailsService;
         this.tokenProvider = tokenProvider;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginRateLimiter = loginRateLimiter;
         this.problemSupport = problemSupport;
     }
 
@@ -63,8 +74,9 @@ public class SecurityConfiguration {
             )))
             .csrf()
                 .disable()
+            .addFilterAt(new LoginRateLimitWebFilter(loginRateLimiter), SecurityWebFiltersOrder.FIRST)
             .addFilterAt(new SpaWebFilter(), SecurityWebFiltersOrder.AUTHENTICATION)
-            .addFilterAt(new JWTFilter(tokenProvider), SecurityWebFiltersOrder.HTTP_BASIC)
+            .addFilterAt(new JWTFilter(tokenProvider, tokenRevocationService), SecurityWebFiltersOrder.HTTP_BASIC)
             .authenticationManager(reactiveAuthenticationManager())
             .exceptionHandling()
                 .accessDeniedHandler(problemSupport)
@@ -85,6 +97,7 @@ public class SecurityConfiguration {
             .pathMatchers("/api/register").permitAll()
             .pathMatchers("/api/activate").permitAll()
             .pathMatchers("/api/authenticate").permitAll()
+            .pathMatchers("/api/authenticate/refresh").permitAll()
             .pathMatchers("/api/account/reset-password/init").permitAll()
             .pathMatchers("/api/account/reset-password/finish").permitAll()
             .pathMatchers("/api/auth-info").permitAll()
@@ -1,14 +1,41 @@
 package es.lab.reactive.app.config.dbmigrations;
 
+import es.lab.reactive.app.domain.AuditEventStats;
 import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.domain.PersistentAuditEvent;
 import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.repository.UserSearchTermsListener;
 import es.lab.reactive.app.security.AuthoritiesConstants;
 
 import com.github.mongobee.changeset.ChangeLog;
 import com.github.mongobee.changeset.ChangeSet;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates the initial database setup.
@@ -16,6 +43,10 @@ import java.time.Instant;
 @ChangeLog(order = "001")
 public class InitialSetupMigration {
 
+    private static final int SEARCH_TERMS_BATCH_SIZE = 500;
+
+    private final Logger log = LoggerFactory.getLogger(InitialSetupMigration.class);
+
     @ChangeSet(order = "01", author = "initiator", id = "01-addAuthorities")
     public void addAuthorities(MongoTemplate mongoTemplate) {
         Authority adminAuthority = new Authority();
@@ -90,4 +121,146 @@ public class InitialSetupMigration {
         userUser.getAuthorities().add(userAuthority);
         mongoTemplate.save(userUser);
     }
+
+    @ChangeSet(order = "03", author = "initiator", id = "03-addAuthorityOrdinals")
+    public void addAuthorityOrdinals(MongoTemplate mongoTemplate) {
+        Query withOrdinal = new Query(Criteria.where("ordinal").exists(true))
+            .with(Sort.by(Sort.Direction.DESC, "ordinal")).limit(1);
+        Authority last = mongoTemplate.findOne(withOrdinal, Authority.class);
+        int ordinal = last == null ? 0 : last.getOrdinal() + 1;
+
+        List<Authority> authorities = mongoTemplate.find(new Query(Criteria.where("ordinal").exists(false))
+            .with(Sort.by("_id")), Authority.class);
+        for (Authority authority : authorities) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(authority.getName())),
+                Update.update("ordinal", ordinal++), Authority.class);
+        }
+    }
+
+    /**
+     * Audit events are expired by a TTL index, kept in line with {@code jhipster.audit-events.retention-period}.
+     */
+    @ChangeSet(order = "04", author = "initiator", id = "04-auditEventsTtlIndex", runAlways = true)
+    public void auditEventsTtlIndex(MongoTemplate mongoTemplate, Environment env) {
+        long retentionPeriod = env.getProperty("jhipster.audit-events.retention-period", Long.class, 30L);
+        long expireAfterSeconds = TimeUnit.DAYS.toSeconds(retentionPeriod);
+        String collectionName = mongoTemplate.getCollectionName(PersistentAuditEvent.class);
+        if (!mongoTemplate.collectionExists(collectionName)) {
+            mongoTemplate.createCollection(collectionName);
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        Document keys = new Document("event_date", 1);
+
+        Document existingIndex = null;
+        for (Document index : collection.listIndexes()) {
+            if (keys.equals(index.get("key"))) {
+                existingIndex = index;
+            }
+        }
+        if (existingIndex != null && existingIndex.get("expireAfterSeconds") instanceof Number) {
+            if (((Number) existingIndex.get("expireAfterSeconds")).longValue() != expireAfterSeconds) {
+                mongoTemplate.executeCommand(new Document("collMod", collectionName)
+                    .append("index", new Document("keyPattern", keys).append("expireAfterSeconds", expireAfterSeconds)));
+            }
+            return;
+        }
+        if (existingIndex != null) {
+            collection.dropIndex(keys);
+        }
+        collection.createIndex(keys, new IndexOptions().expireAfter(expireAfterSeconds, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Indexes backing the keyset pagination of the audit events (newest first) and of the users (by login).
+     * <p>
+     * The login index has the name Spring Data gave to the index of {@code @Indexed}, so they don't conflict.
+     */
+    @ChangeSet(order = "05", author = "initiator", id = "05-addPaginationIndexes")
+    public void addPaginationIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(PersistentAuditEvent.class)
+            .ensureIndex(new Index().on("event_date", Sort.Direction.DESC).on("_id", Sort.Direction.DESC).named("event_date_id"));
+        mongoTemplate.indexOps(User.class)
+            .ensureIndex(new Index().on("login", Sort.Direction.ASC).named("login"));
+    }
+
+    @ChangeSet(order = "06", author = "initiator", id = "06-addAuditEventStatsIndex")
+    public void addAuditEventStatsIndex(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(AuditEventStats.class)
+            .ensureIndex(new Index().on("hour", Sort.Direction.ASC).on("event_type", Sort.Direction.ASC)
+                .on("principal", Sort.Direction.ASC).named("hour_event_type_principal"));
+    }
+
+    /**
+     * Logins and emails are unique, so conflicting users are detected by the writes themselves. The indexes replace
+     * the non unique ones of the same name, created by {@code @Indexed} until then; users without email are ignored.
+     */
+    @ChangeSet(order = "07", author = "initiator", id = "07-addUniqueUserIndexes")
+    public void addUniqueUserIndexes(MongoTemplate mongoTemplate) {
+        IndexOperations indexOps = mongoTemplate.indexOps(User.class);
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if ((index.getName().equals("login") || index.getName().equals("email")) && !index.isUnique()) {
+                indexOps.dropIndex(index.getName());
+            }
+        }
+        indexOps.ensureIndex(new Index().on("login", Sort.Direction.ASC).named("login").unique());
+        indexOps.ensureIndex(new Index().on("email", Sort.Direction.ASC).named("email").unique().sparse());
+    }
+
+    /**
+     * Emails are looked up in lower case, as they are written since the users are created; this converts the older
+     * ones. An email that would then be used by two users is kept as is, and logged to be fixed by hand.
+     */
+    @ChangeSet(order = "08", author = "initiator", id = "08-lowerCaseUserEmails")
+    public void lowerCaseUserEmails(MongoTemplate mongoTemplate) {
+        MongoCollection<Document> users = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class));
+        for (Document user : users.find(Filters.regex("email", "[A-Z]")).projection(Projections.include("email"))) {
+            String email = user.getString("email");
+            try {
+                users.updateOne(Filters.eq("_id", user.get("_id")), Updates.set("email", email.toLowerCase()));
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                log.warn("Email {} of user {} is also used in lower case by another user, it was left unchanged", email, user.get("_id"));
+            }
+        }
+    }
+
+    /**
+     * Indexes backing the lookups by activation and reset key, and the deletion of the not activated users; the
+     * latter only holds the not activated users.
+     */
+    @ChangeSet(order = "09", author = "initiator", id = "09-addUserKeyIndexes")
+    public void addUserKeyIndexes(MongoTemplate mongoTemplate) {
+        IndexOperations indexOps = mongoTemplate.indexOps(User.class);
+        indexOps.ensureIndex(new Index().on("activation_key", Sort.Direction.ASC).named("activation_key").sparse());
+        indexOps.ensureIndex(new Index().on("reset_key", Sort.Direction.ASC).named("reset_key").sparse());
+        indexOps.ensureIndex(new Index().on("created_date", Sort.Direction.ASC).named("not_activated_created_date")
+            .partial(PartialIndexFilter.of(Criteria.where("activated").is(false))));
+    }
+
+    /**
+     * Users are searched by a prefix of their lower case login, email or names, held in {@code search_terms} since
+     * they are saved with {@link UserSearchTermsListener}; this fills them in for the older users, in batches.
+     */
+    @ChangeSet(order = "10", author = "initiator", id = "10-addUserSearchTerms")
+    public void addUserSearchTerms(MongoTemplate mongoTemplate) {
+        MongoCollection<Document> users = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class));
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (Document user : users.find(Filters.exists("search_terms", false))
+                .projection(Projections.include("login", "email", "first_name", "last_name"))) {
+            List<String> terms = new ArrayList<>(UserSearchTermsListener.getSearchTerms(user.getString("login"),
+                user.getString("email"), user.getString("first_name"), user.getString("last_name")));
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", user.get("_id")), Updates.set("search_terms", terms)));
+            if (updates.size() == SEARCH_TERMS_BATCH_SIZE) {
+                users.bulkWrite(updates);
+                updates.clear();
+            }
+        }
+        if (!updates.isEmpty()) {
+            users.bulkWrite(updates);
+        }
+        mongoTemplate.indexOps(User.class)
+            .ensureIndex(new Index().on("search_terms", Sort.Direction.ASC).named("search_terms"));
+    }
 }
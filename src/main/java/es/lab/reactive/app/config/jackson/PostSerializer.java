@@ -0,0 +1,46 @@
+package es.lab.reactive.app.config.jackson;
+
+import es.lab.reactive.app.domain.Post;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Post} field by field, with pre-encoded field names, instead of through the reflective bean
+ * serializer.
+ * <p>
+ * The output is the same as the bean serializer's, fields included, so a field added to {@link Post} must be
+ * added here too.
+ */
+public class PostSerializer extends StdSerializer<Post> {
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString TITLE = new SerializedString("title");
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+
+    private static final SerializedString DATE = new SerializedString("date");
+
+    public PostSerializer() {
+        super(Post.class);
+    }
+
+    @Override
+    public void serialize(Post post, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(post);
+        gen.writeFieldName(ID);
+        gen.writeString(post.getId());
+        gen.writeFieldName(TITLE);
+        gen.writeString(post.getTitle());
+        gen.writeFieldName(CONTENT);
+        gen.writeString(post.getContent());
+        gen.writeFieldName(DATE);
+        provider.defaultSerializeValue(post.getDate(), gen);
+        gen.writeEndObject();
+    }
+}
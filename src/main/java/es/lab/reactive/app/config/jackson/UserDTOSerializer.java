@@ -0,0 +1,90 @@
+package es.lab.reactive.app.config.jackson;
+
+import es.lab.reactive.app.service.dto.UserDTO;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link UserDTO} field by field, with pre-encoded field names, instead of through the reflective bean
+ * serializer.
+ * <p>
+ * The output is the same as the bean serializer's, fields included, so a field added to {@link UserDTO} must be
+ * added here too.
+ */
+public class UserDTOSerializer extends StdSerializer<UserDTO> {
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString LOGIN = new SerializedString("login");
+
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+
+    private static final SerializedString EMAIL = new SerializedString("email");
+
+    private static final SerializedString IMAGE_URL = new SerializedString("imageUrl");
+
+    private static final SerializedString ACTIVATED = new SerializedString("activated");
+
+    private static final SerializedString LANG_KEY = new SerializedString("langKey");
+
+    private static final SerializedString CREATED_BY = new SerializedString("createdBy");
+
+    private static final SerializedString CREATED_DATE = new SerializedString("createdDate");
+
+    private static final SerializedString LAST_MODIFIED_BY = new SerializedString("lastModifiedBy");
+
+    private static final SerializedString LAST_MODIFIED_DATE = new SerializedString("lastModifiedDate");
+
+    private static final SerializedString AUTHORITIES = new SerializedString("authorities");
+
+    public UserDTOSerializer() {
+        super(UserDTO.class);
+    }
+
+    @Override
+    public void serialize(UserDTO user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(user);
+        gen.writeFieldName(ID);
+        gen.writeString(user.getId());
+        gen.writeFieldName(LOGIN);
+        gen.writeString(user.getLogin());
+        gen.writeFieldName(FIRST_NAME);
+        gen.writeString(user.getFirstName());
+        gen.writeFieldName(LAST_NAME);
+        gen.writeString(user.getLastName());
+        gen.writeFieldName(EMAIL);
+        gen.writeString(user.getEmail());
+        gen.writeFieldName(IMAGE_URL);
+        gen.writeString(user.getImageUrl());
+        gen.writeFieldName(ACTIVATED);
+        gen.writeBoolean(user.isActivated());
+        gen.writeFieldName(LANG_KEY);
+        gen.writeString(user.getLangKey());
+        gen.writeFieldName(CREATED_BY);
+        gen.writeString(user.getCreatedBy());
+        gen.writeFieldName(CREATED_DATE);
+        provider.defaultSerializeValue(user.getCreatedDate(), gen);
+        gen.writeFieldName(LAST_MODIFIED_BY);
+        gen.writeString(user.getLastModifiedBy());
+        gen.writeFieldName(LAST_MODIFIED_DATE);
+        provider.defaultSerializeValue(user.getLastModifiedDate(), gen);
+        gen.writeFieldName(AUTHORITIES);
+        if (user.getAuthorities() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray();
+            for (String authority : user.getAuthorities()) {
+                gen.writeString(authority);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+}
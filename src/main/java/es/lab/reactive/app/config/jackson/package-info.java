@@ -0,0 +1,4 @@
+/**
+ * Jackson serializers of the most frequently returned payloads.
+ */
+package es.lab.reactive.app.config.jackson;
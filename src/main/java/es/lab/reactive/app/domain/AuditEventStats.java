@@ -0,0 +1,103 @@
+package es.lab.reactive.app.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The number of {@link PersistentAuditEvent}s of a type, for a principal, during an hour (UTC).
+ * <p>
+ * Counters are incremented as audit events are written, and are identified by their hour, type and principal so
+ * that they can be upserted. The {@code hour_event_type_principal} index is created by the
+ * {@code 06-addAuditEventStatsIndex} changeset.
+ */
+@Document(collection = "jhi_persistent_audit_event_stats")
+public class AuditEventStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @JsonIgnore
+    private String id;
+
+    @Field("hour")
+    private Instant hour;
+
+    @Field("event_type")
+    private String auditEventType;
+
+    private String principal;
+
+    private long count;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getHour() {
+        return hour;
+    }
+
+    public void setHour(Instant hour) {
+        this.hour = hour;
+    }
+
+    public String getAuditEventType() {
+        return auditEventType;
+    }
+
+    public void setAuditEventType(String auditEventType) {
+        this.auditEventType = auditEventType;
+    }
+
+    public String getPrincipal() {
+        return principal;
+    }
+
+    public void setPrincipal(String principal) {
+        this.principal = principal;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuditEventStats)) {
+            return false;
+        }
+        return id != null && id.equals(((AuditEventStats) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "AuditEventStats{" +
+            "hour=" + hour +
+            ", auditEventType='" + auditEventType + '\'' +
+            ", principal='" + principal + '\'' +
+            ", count=" + count +
+            '}';
+    }
+}
@@ -2,6 +2,7 @@ package es.lab.reactive.app.domain;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
@@ -20,6 +21,12 @@ public class Authority implements Serializable {
     @Id
     private String name;
 
+    /**
+     * Small, stable id of the authority, used to encode authorities as a bitset in JWTs.
+     */
+    @Field("ordinal")
+    private Integer ordinal;
+
     public String getName() {
         return name;
     }
@@ -28,6 +35,14 @@ public class Authority implements Serializable {
         this.name = name;
     }
 
+    public Integer getOrdinal() {
+        return ordinal;
+    }
+
+    public void setOrdinal(Integer ordinal) {
+        this.ordinal = ordinal;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -49,6 +64,7 @@ public class Authority implements Serializable {
     public String toString() {
         return "Authority{" +
             "name='" + name + '\'' +
+            ", ordinal=" + ordinal +
             "}";
     }
 }
@@ -0,0 +1,170 @@
+package es.lab.reactive.app.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A mail waiting to be sent.
+ * <p>
+ * A mail is due once its next attempt date is past. Sent mails are deleted, and mails abandoned after too many
+ * attempts lose their next attempt date and are removed by MongoDB a week after they failed.
+ */
+@Document(collection = "mail_outbox")
+public class OutboxMail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @NotNull
+    private String to;
+
+    private String subject;
+
+    private String content;
+
+    private boolean multipart;
+
+    private boolean html;
+
+    private int attempts;
+
+    @Indexed
+    @Field("next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Indexed(expireAfterSeconds = 7 * 24 * 60 * 60)
+    @Field("failed_at")
+    private Instant failedAt;
+
+    @Field("created_date")
+    private Instant createdDate = Instant.now();
+
+    public OutboxMail() {
+        // Empty constructor needed for Spring Data.
+    }
+
+    public OutboxMail(String to, String subject, String content, boolean multipart, boolean html) {
+        this.to = to;
+        this.subject = subject;
+        this.content = content;
+        this.multipart = multipart;
+        this.html = html;
+        this.nextAttemptAt = createdDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public boolean isMultipart() {
+        return multipart;
+    }
+
+    public void setMultipart(boolean multipart) {
+        this.multipart = multipart;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public void setHtml(boolean html) {
+        this.html = html;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(Instant failedAt) {
+        this.failedAt = failedAt;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OutboxMail)) {
+            return false;
+        }
+        return id != null && id.equals(((OutboxMail) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OutboxMail{" +
+            "id='" + id + '\'' +
+            ", to='" + to + '\'' +
+            ", subject='" + subject + '\'' +
+            ", attempts=" + attempts +
+            ", nextAttemptAt=" + nextAttemptAt +
+            '}';
+    }
+}
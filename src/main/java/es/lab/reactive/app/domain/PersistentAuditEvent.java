@@ -25,6 +25,9 @@ public class PersistentAuditEvent implements Serializable {
     @NotNull
     private String principal;
 
+    /**
+     * Expired by a TTL index, created by the {@code 04-auditEventsTtlIndex} changeset.
+     */
     @Field("event_date")
     private Instant auditEventDate;
 
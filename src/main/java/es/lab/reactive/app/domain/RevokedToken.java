@@ -0,0 +1,79 @@
+package es.lab.reactive.app.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A revoked JWT, identified by its {@code jti} claim.
+ * <p>
+ * Entries are removed by MongoDB once the token they refer to has expired, as the token would be rejected anyway.
+ */
+@Document(collection = "revoked_token")
+public class RevokedToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @NotNull
+    @Indexed(expireAfterSeconds = 0)
+    @Field("expires_at")
+    private Instant expiresAt;
+
+    public RevokedToken() {
+        // Empty constructor needed for Spring Data.
+    }
+
+    public RevokedToken(String id, Instant expiresAt) {
+        this.id = id;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RevokedToken)) {
+            return false;
+        }
+        return id != null && id.equals(((RevokedToken) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RevokedToken{" +
+            "id='" + id + '\'' +
+            ", expiresAt=" + expiresAt +
+            '}';
+    }
+}
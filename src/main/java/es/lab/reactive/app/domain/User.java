@@ -5,7 +5,6 @@ import es.lab.reactive.app.config.Constants;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import javax.validation.constraints.Email;
@@ -20,6 +19,9 @@ import java.util.Set;
 
 /**
  * A user.
+ * <p>
+ * The unique indexes on login and email are created by the database migrations, not by {@code @Indexed}: Spring
+ * Data would otherwise try to create them without their options at startup, and conflict with them.
  */
 @org.springframework.data.mongodb.core.mapping.Document(collection = "jhi_user")
 public class User extends AbstractAuditingEntity implements Serializable {
@@ -32,7 +34,6 @@ public class User extends AbstractAuditingEntity implements Serializable {
     @NotNull
     @Pattern(regexp = Constants.LOGIN_REGEX)
     @Size(min = 1, max = 50)
-    @Indexed
     private String login;
 
     @JsonIgnore
@@ -50,7 +51,6 @@ public class User extends AbstractAuditingEntity implements Serializable {
 
     @Email
     @Size(min = 5, max = 254)
-    @Indexed
     private String email;
 
     private boolean activated = false;
@@ -79,6 +79,13 @@ public class User extends AbstractAuditingEntity implements Serializable {
     @JsonIgnore
     private Set<Authority> authorities = new HashSet<>();
 
+    /**
+     * The lower case login, email and names, matched by prefix by the user search; set whenever the user is saved.
+     */
+    @JsonIgnore
+    @Field("search_terms")
+    private Set<String> searchTerms = new HashSet<>();
+
 
     public String getId() {
         return id;
@@ -185,6 +192,14 @@ public class User extends AbstractAuditingEntity implements Serializable {
         this.authorities = authorities;
     }
 
+    public Set<String> getSearchTerms() {
+        return searchTerms;
+    }
+
+    public void setSearchTerms(Set<String> searchTerms) {
+        this.searchTerms = searchTerms;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,110 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.AuditEventStats;
+import es.lab.reactive.app.domain.PersistentAuditEvent;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Repository for the hourly {@link AuditEventStats} counters.
+ */
+@Repository
+public class AuditEventStatsRepository {
+
+    private static final String ID_SEPARATOR = "\n";
+
+    private static final Sort SORT = Sort.by("hour", "auditEventType", "principal");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public AuditEventStatsRepository(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Count audit events in their hourly counters.
+     * <p>
+     * Events are grouped by counter first, so a batch costs one {@code $inc} per counter, sent in a single bulk write.
+     *
+     * @param auditEvents the audit events to count; the ones without a date are ignored.
+     * @return an empty {@link Mono}, completed once the counters are updated.
+     */
+    public Mono<Void> increment(Collection<PersistentAuditEvent> auditEvents) {
+        Map<String, AuditEventStats> counters = new LinkedHashMap<>();
+        for (PersistentAuditEvent auditEvent : auditEvents) {
+            if (auditEvent.getAuditEventDate() == null) {
+                continue;
+            }
+            Instant hour = auditEvent.getAuditEventDate().truncatedTo(ChronoUnit.HOURS);
+            String id = hour.getEpochSecond() + ID_SEPARATOR + auditEvent.getAuditEventType() + ID_SEPARATOR + auditEvent.getPrincipal();
+            AuditEventStats counter = counters.computeIfAbsent(id, key -> {
+                AuditEventStats stats = new AuditEventStats();
+                stats.setId(key);
+                stats.setHour(hour);
+                stats.setAuditEventType(auditEvent.getAuditEventType());
+                stats.setPrincipal(auditEvent.getPrincipal());
+                return stats;
+            });
+            counter.setCount(counter.getCount() + 1);
+        }
+        if (counters.isEmpty()) {
+            return Mono.empty();
+        }
+        List<WriteModel<Document>> updates = new ArrayList<>(counters.size());
+        for (AuditEventStats stats : counters.values()) {
+            updates.add(new UpdateOneModel<>(
+                Filters.eq("_id", stats.getId()),
+                Updates.combine(
+                    Updates.setOnInsert("hour", Date.from(stats.getHour())),
+                    Updates.setOnInsert("event_type", stats.getAuditEventType()),
+                    Updates.setOnInsert("principal", stats.getPrincipal()),
+                    Updates.inc("count", stats.getCount())),
+                new UpdateOptions().upsert(true)));
+        }
+        return Mono.from(mongoTemplate.getCollection(mongoTemplate.getCollectionName(AuditEventStats.class))
+            .bulkWrite(updates, new BulkWriteOptions().ordered(false)))
+            .then();
+    }
+
+    /**
+     * Get the hourly counters in a time period, by hour, then type and principal.
+     *
+     * @param fromDate the start of the period, inclusive.
+     * @param toDate the end of the period, exclusive.
+     * @param auditEventType the type of audit events, or {@code null} for all types.
+     * @param principal the principal, or {@code null} for all principals.
+     */
+    public Flux<AuditEventStats> findAll(Instant fromDate, Instant toDate, String auditEventType, String principal) {
+        Criteria criteria = where("hour").gte(fromDate).lt(toDate);
+        if (auditEventType != null) {
+            criteria = criteria.and("auditEventType").is(auditEventType);
+        }
+        if (principal != null) {
+            criteria = criteria.and("principal").is(principal);
+        }
+        return mongoTemplate.find(query(criteria).with(SORT), AuditEventStats.class);
+    }
+
+    public Mono<Void> deleteByHourBefore(Instant before) {
+        return mongoTemplate.remove(query(where("hour").lt(before)), AuditEventStats.class).then();
+    }
+}
@@ -0,0 +1,238 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.PersistentAuditEvent;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Repository for {@link PersistentAuditEvent}s stored in one collection per month (UTC), named after the
+ * {@code jhi_persistent_audit_event} collection with a {@code _yyyy_MM} suffix.
+ * <p>
+ * Date range queries only read the partitions overlapping the range, and retention drops whole partitions.
+ * Pages are built partition by partition, from the newest one if sorted by descending date, so sorting on other
+ * properties only applies within a month.
+ */
+@Repository
+public class MonthlyAuditEventRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final String collectionPrefix;
+
+    private final Set<String> indexedPartitions = ConcurrentHashMap.newKeySet();
+
+    public MonthlyAuditEventRepository(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionPrefix = mongoTemplate.getCollectionName(PersistentAuditEvent.class) + "_";
+    }
+
+    public Flux<PersistentAuditEvent> insert(Collection<PersistentAuditEvent> auditEvents) {
+        Map<String, List<PersistentAuditEvent>> byPartition = auditEvents.stream()
+            .collect(Collectors.groupingBy(auditEvent -> getPartition(auditEvent.getAuditEventDate())));
+        return Flux.fromIterable(byPartition.entrySet())
+            .concatMap(entry -> ensureIndexed(entry.getKey())
+                .thenMany(mongoTemplate.insert(entry.getValue(), entry.getKey())));
+    }
+
+    public Mono<PersistentAuditEvent> findById(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        // Ids are generated when the events are written, which is usually during the month of the event or just after
+        YearMonth idMonth = YearMonth.from(new ObjectId(id).getDate().toInstant().atOffset(ZoneOffset.UTC));
+        List<String> likelyPartitions = Arrays.asList(getPartition(idMonth), getPartition(idMonth.minusMonths(1)));
+        return Flux.fromIterable(likelyPartitions)
+            .concatMap(partition -> mongoTemplate.findById(id, PersistentAuditEvent.class, partition))
+            .next()
+            .switchIfEmpty(getPartitions(Instant.MIN, Instant.MAX)
+                .flatMapMany(partitions -> Flux.fromIterable(partitions).filter(partition -> !likelyPartitions.contains(partition)))
+                .concatMap(partition -> mongoTemplate.findById(id, PersistentAuditEvent.class, partition))
+                .next());
+    }
+
+    public Flux<PersistentAuditEvent> findAllBy(Pageable pageable) {
+        return getPartitions(Instant.MIN, Instant.MAX)
+            .flatMapMany(partitions -> findPage(partitions, new Criteria(), pageable));
+    }
+
+    public Flux<PersistentAuditEvent> findAllByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable) {
+        return getPartitions(fromDate, toDate)
+            .flatMapMany(partitions -> findPage(partitions, between(fromDate, toDate), pageable));
+    }
+
+    /**
+     * Keyset pagination: the audit events that come after a given one when sorted by descending date, then id.
+     *
+     * @param auditEventDate the date of the last audit event of the previous page, or {@code null} for the first page.
+     * @param id the id of the last audit event of the previous page.
+     * @param size the size of the page.
+     */
+    public Flux<PersistentAuditEvent> findAllBefore(Instant auditEventDate, String id, int size) {
+        return findAllBetweenBefore(null, null, auditEventDate, id, size);
+    }
+
+    /**
+     * Keyset pagination within a time period, like {@link #findAllBefore(Instant, String, int)}.
+     *
+     * @param fromDate the start of the period, exclusive, or {@code null} for no period.
+     * @param toDate the end of the period, exclusive.
+     * @param auditEventDate the date of the last audit event of the previous page, or {@code null} for the first page.
+     * @param id the id of the last audit event of the previous page.
+     * @param size the size of the page.
+     */
+    public Flux<PersistentAuditEvent> findAllBetweenBefore(Instant fromDate, Instant toDate, Instant auditEventDate, String id, int size) {
+        Criteria range = fromDate == null ? new Criteria() : between(fromDate, toDate);
+        Criteria criteria = auditEventDate == null ? range : range.orOperator(
+            where("auditEventDate").lt(auditEventDate),
+            where("auditEventDate").is(auditEventDate).and("id").lt(new ObjectId(id)));
+        Sort sort = Sort.by(Sort.Direction.DESC, "auditEventDate", "id");
+        Instant end = fromDate == null ? Instant.MAX : toDate;
+        if (auditEventDate != null && auditEventDate.isBefore(end)) {
+            end = auditEventDate.plusMillis(1);
+        }
+        return getPartitions(fromDate == null ? Instant.MIN : fromDate, end)
+            .flatMapMany(partitions -> Flux.defer(() -> {
+                List<String> newestFirst = new ArrayList<>(partitions);
+                Collections.reverse(newestFirst);
+                int[] remaining = {size};
+                return Flux.fromIterable(newestFirst)
+                    .concatMap(partition -> remaining[0] <= 0 ? Flux.<PersistentAuditEvent>empty()
+                        : mongoTemplate.find(query(criteria).with(sort).limit(remaining[0]), PersistentAuditEvent.class, partition)
+                            .doOnNext(auditEvent -> remaining[0]--));
+            }));
+    }
+
+    public Mono<Long> count() {
+        return getPartitions(Instant.MIN, Instant.MAX)
+            .flatMapMany(Flux::fromIterable)
+            .flatMap(partition -> mongoTemplate.count(new Query(), partition))
+            .reduce(0L, Long::sum);
+    }
+
+    public Mono<Long> countByAuditEventDateBetween(Instant fromDate, Instant toDate) {
+        return getPartitions(fromDate, toDate)
+            .flatMapMany(Flux::fromIterable)
+            .flatMap(partition -> mongoTemplate.count(query(between(fromDate, toDate)), PersistentAuditEvent.class, partition))
+            .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Delete the audit events older than a date: partitions that are entirely older are dropped, and only the
+     * partition containing the date is filtered.
+     */
+    public Mono<Void> deleteByAuditEventDateBefore(Instant before) {
+        String cutoffPartition = getPartition(before);
+        return getPartitions(Instant.MIN, before)
+            .flatMapMany(Flux::fromIterable)
+            .concatMap(partition -> {
+                if (partition.equals(cutoffPartition)) {
+                    return mongoTemplate.remove(query(where("auditEventDate").lt(before)), PersistentAuditEvent.class, partition).then();
+                }
+                indexedPartitions.remove(partition);
+                return mongoTemplate.dropCollection(partition);
+            })
+            .then();
+    }
+
+    private Flux<PersistentAuditEvent> findPage(List<String> partitions, Criteria criteria, Pageable pageable) {
+        Sort.Order dateOrder = pageable.getSort().getOrderFor("auditEventDate");
+        List<String> ordered = new ArrayList<>(partitions);
+        if (dateOrder != null && dateOrder.isDescending()) {
+            Collections.reverse(ordered);
+        }
+        if (pageable.isUnpaged()) {
+            return Flux.fromIterable(ordered)
+                .concatMap(partition -> mongoTemplate.find(query(criteria).with(pageable.getSort()), PersistentAuditEvent.class, partition));
+        }
+        return Flux.defer(() -> {
+            long[] skip = {pageable.getOffset()};
+            long[] remaining = {pageable.getPageSize()};
+            // concatMap maps a partition only once the previous one is done, so the page window can be tracked here
+            return Flux.fromIterable(ordered)
+                .concatMap(partition -> remaining[0] <= 0 ? Flux.<PersistentAuditEvent>empty() : mongoTemplate.count(query(criteria), PersistentAuditEvent.class, partition)
+                    .flatMapMany(count -> {
+                        if (skip[0] >= count) {
+                            skip[0] -= count;
+                            return Flux.empty();
+                        }
+                        long taken = Math.min(remaining[0], count - skip[0]);
+                        Query page = query(criteria).with(pageable.getSort()).skip(skip[0]).limit((int) taken);
+                        skip[0] = 0;
+                        remaining[0] -= taken;
+                        return mongoTemplate.find(page, PersistentAuditEvent.class, partition);
+                    }));
+        });
+    }
+
+    /**
+     * @return the existing partitions overlapping {@code [fromDate, toDate)}, oldest first.
+     */
+    private Mono<List<String>> getPartitions(Instant fromDate, Instant toDate) {
+        return mongoTemplate.getCollectionNames()
+            .filter(name -> name.startsWith(collectionPrefix))
+            .<YearMonth>handle((name, sink) -> getMonth(name).ifPresent(sink::next))
+            .filter(month -> overlaps(month, fromDate, toDate))
+            .sort()
+            .map(this::getPartition)
+            .collectList();
+    }
+
+    private Mono<Void> ensureIndexed(String partition) {
+        if (indexedPartitions.contains(partition)) {
+            return Mono.empty();
+        }
+        return mongoTemplate.indexOps(partition)
+            .ensureIndex(new Index().on("event_date", Sort.Direction.DESC).on("_id", Sort.Direction.DESC))
+            .doOnSuccess(name -> indexedPartitions.add(partition))
+            .then();
+    }
+
+    private String getPartition(Instant instant) {
+        return getPartition(YearMonth.from(instant.atOffset(ZoneOffset.UTC)));
+    }
+
+    private String getPartition(YearMonth month) {
+        return collectionPrefix + month.format(PARTITION_SUFFIX);
+    }
+
+    private Optional<YearMonth> getMonth(String partition) {
+        try {
+            return Optional.of(YearMonth.parse(partition.substring(collectionPrefix.length()), PARTITION_SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean overlaps(YearMonth month, Instant fromDate, Instant toDate) {
+        Instant start = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return end.isAfter(fromDate) && start.isBefore(toDate);
+    }
+
+    private static Criteria between(Instant fromDate, Instant toDate) {
+        return where("auditEventDate").gt(fromDate).lt(toDate);
+    }
+}
@@ -0,0 +1,18 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.OutboxMail;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data MongoDB repository for the {@link OutboxMail} entity.
+ */
+@Repository
+public interface OutboxMailRepository extends ReactiveMongoRepository<OutboxMail, String> {
+
+    Mono<Long> countByNextAttemptAtNotNull();
+
+    Mono<Long> countByFailedAtNotNull();
+}
@@ -1,7 +1,9 @@
 package es.lab.reactive.app.repository;
 
 import es.lab.reactive.app.domain.PersistentAuditEvent;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -19,7 +21,26 @@ public interface PersistenceAuditEventRepository extends ReactiveMongoRepository
 
     Flux<PersistentAuditEvent> findByAuditEventDateBefore(Instant before);
 
+    /**
+     * Delete all the audit events older than a date, in a single operation.
+     *
+     * @return the number of deleted audit events.
+     */
+    Mono<Long> deleteByAuditEventDateBefore(Instant before);
+
     Flux<PersistentAuditEvent> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset pagination: the audit events that come after a given one when sorted by descending date, then id.
+     */
+    @Query("{ $or: [ { 'event_date': { $lt: ?0 } }, { 'event_date': ?0, '_id': { $lt: ?1 } } ] }")
+    Flux<PersistentAuditEvent> findAllBefore(Instant auditEventDate, ObjectId id, Pageable pageable);
+
+    /**
+     * Keyset pagination within a time period, like {@link #findAllBefore(Instant, ObjectId, Pageable)}.
+     */
+    @Query("{ 'event_date': { $gt: ?0, $lt: ?1 }, $or: [ { 'event_date': { $lt: ?2 } }, { 'event_date': ?2, '_id': { $lt: ?3 } } ] }")
+    Flux<PersistentAuditEvent> findAllBetweenBefore(Instant fromDate, Instant toDate, Instant auditEventDate, ObjectId id, Pageable pageable);
+
     Mono<Long> countByAuditEventDateBetween(Instant fromDate, Instant toDate);
 }
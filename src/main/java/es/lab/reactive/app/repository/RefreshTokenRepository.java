@@ -0,0 +1,21 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.RefreshToken;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Spring Data MongoDB repository for the {@link RefreshToken} entity.
+ */
+@Repository
+public interface RefreshTokenRepository extends ReactiveMongoRepository<RefreshToken, String> {
+
+    /**
+     * Atomically find and remove a refresh token that has not expired yet, so it can only be used once.
+     */
+    Mono<RefreshToken> deleteByIdAndExpiresAtAfter(String id, Instant instant);
+}
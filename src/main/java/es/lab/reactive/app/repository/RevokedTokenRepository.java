@@ -0,0 +1,18 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.RevokedToken;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+/**
+ * Spring Data MongoDB repository for the {@link RevokedToken} entity.
+ */
+@Repository
+public interface RevokedTokenRepository extends ReactiveMongoRepository<RevokedToken, String> {
+
+    Flux<RevokedToken> findAllByExpiresAtAfter(Instant instant);
+}
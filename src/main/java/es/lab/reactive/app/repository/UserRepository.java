@@ -3,6 +3,7 @@ package es.lab.reactive.app.repository;
 import es.lab.reactive.app.domain.User;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -18,15 +19,29 @@ public interface UserRepository extends ReactiveMongoRepository<User, String> {
 
     Mono<User> findOneByActivationKey(String activationKey);
 
-    Flux<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
-
     Mono<User> findOneByResetKey(String resetKey);
 
-    Mono<User> findOneByEmailIgnoreCase(String email);
+    Mono<User> findOneByResetKeyAndResetDateAfter(String resetKey, Instant resetDate);
+
+    Mono<User> findOneByEmail(String email);
+
+    /**
+     * Emails are stored in lower case, so this is a point read on the unique email index rather than a case
+     * insensitive regular expression.
+     */
+    default Mono<User> findOneByEmailIgnoreCase(String email) {
+        return email == null ? Mono.empty() : findOneByEmail(email.toLowerCase());
+    }
 
     Mono<User> findOneByLogin(String login);
 
     Flux<User> findAllByLoginNot(Pageable pageable, String login);
 
     Mono<Long> countAllByLoginNot(String anonymousUser);
+
+    /**
+     * Keyset pagination: the users whose login comes after a given one, excluding another login.
+     */
+    @Query("{ 'login': { $gt: ?0, $ne: ?1 } }")
+    Flux<User> findAllByLoginAfterAndLoginNot(String after, String login, Pageable pageable);
 }
@@ -0,0 +1,52 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.domain.User;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Keeps the {@link User#getSearchTerms() search terms} of users in sync with their login, email and names whenever
+ * they are saved through a Mongo template or a repository.
+ * <p>
+ * The terms are the lower case fields, plus each word of multi-word names, so a prefix of any of them can be found
+ * with an anchored regular expression on the {@code search_terms} index.
+ */
+@Component
+public class UserSearchTermsListener extends AbstractMongoEventListener<User> {
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<User> event) {
+        User user = event.getSource();
+        user.setSearchTerms(getSearchTerms(user.getLogin(), user.getEmail(), user.getFirstName(), user.getLastName()));
+    }
+
+    public static Set<String> getSearchTerms(String login, String email, String firstName, String lastName) {
+        Set<String> terms = new HashSet<>();
+        addTerm(terms, login);
+        addTerm(terms, email);
+        addName(terms, firstName);
+        addName(terms, lastName);
+        return terms;
+    }
+
+    private static void addName(Set<String> terms, String name) {
+        addTerm(terms, name);
+        if (name != null) {
+            for (String word : name.trim().split("\\s+")) {
+                addTerm(terms, word);
+            }
+        }
+    }
+
+    private static void addTerm(Set<String> terms, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            terms.add(value.trim().toLowerCase(Locale.ENGLISH));
+        }
+    }
+}
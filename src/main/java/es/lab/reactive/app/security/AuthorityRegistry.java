@@ -0,0 +1,189 @@
+package es.lab.reactive.app.security;
+
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.repository.AuthorityRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the {@link Authority} collection.
+ * <p>
+ * Each authority with an ordinal can be encoded as one bit of a {@code long}, which is how authorities are stored
+ * in JWTs. Decoding hands out shared {@link GrantedAuthority} instances, and the list decoded for a given bitset is
+ * cached, so authenticating a request doesn't allocate any authority.
+ * <p>
+ * User writes take their {@link Authority} instances from here too, so they don't read the authorities. The view is
+ * reloaded whenever an authority is saved or deleted through Spring Data.
+ */
+@Component
+@DependsOn("mongobee")
+public class AuthorityRegistry {
+
+    /**
+     * Ordinals above this value can't be encoded in a {@code long}.
+     */
+    public static final int MAX_ORDINAL = Long.SIZE - 1;
+
+    private final Logger log = LoggerFactory.getLogger(AuthorityRegistry.class);
+
+    private final AuthorityRepository authorityRepository;
+
+    private volatile State state = new State(Collections.emptyList());
+
+    public AuthorityRegistry(AuthorityRepository authorityRepository) {
+        this.authorityRepository = authorityRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh().block();
+    }
+
+    /**
+     * Reload the authorities from the database.
+     *
+     * @return an empty {@link Mono}, completed once the new authorities are in use.
+     */
+    public Mono<Void> refresh() {
+        return authorityRepository.findAll()
+            .collectList()
+            .doOnNext(authorities -> {
+                this.state = new State(authorities);
+                log.debug("Loaded {} authorities", authorities.size());
+            })
+            .then();
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof Authority) {
+            refreshAfterWrite();
+        }
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        if (Authority.class.equals(event.getType())) {
+            refreshAfterWrite();
+        }
+    }
+
+    private void refreshAfterWrite() {
+        refresh().subscribe(null, e -> log.warn("Could not reload the authorities", e));
+    }
+
+    /**
+     * Get the shared {@link Authority} for an authority name.
+     *
+     * @param name the name of the authority.
+     * @return the shared instance, or empty if the authority is not known.
+     */
+    public Optional<Authority> getAuthority(String name) {
+        return Optional.ofNullable(state.authorities.get(name));
+    }
+
+    /**
+     * @return the shared, unmodifiable list of the names of all the authorities.
+     */
+    public List<String> getAuthorityNames() {
+        return state.names;
+    }
+
+    /**
+     * Get the shared {@link GrantedAuthority} for an authority name.
+     *
+     * @param name the name of the authority.
+     * @return the shared instance, or a new one if the authority is not known.
+     */
+    public GrantedAuthority getGrantedAuthority(String name) {
+        GrantedAuthority grantedAuthority = state.grantedAuthorities.get(name);
+        return grantedAuthority != null ? grantedAuthority : new SimpleGrantedAuthority(name);
+    }
+
+    /**
+     * Encode authorities as a bitset of their ordinals.
+     *
+     * @param authorities the authorities to encode.
+     * @return the bitset, or empty if one of the authorities has no ordinal.
+     */
+    public OptionalLong encode(Collection<? extends GrantedAuthority> authorities) {
+        Map<String, Integer> ordinals = state.ordinals;
+        long bits = 0;
+        for (GrantedAuthority authority : authorities) {
+            Integer ordinal = ordinals.get(authority.getAuthority());
+            if (ordinal == null) {
+                return OptionalLong.empty();
+            }
+            bits |= 1L << ordinal;
+        }
+        return OptionalLong.of(bits);
+    }
+
+    /**
+     * Decode a bitset produced by {@link #encode(Collection)}.
+     *
+     * @param bits the bitset.
+     * @return the shared, unmodifiable list of authorities; ordinals that are not known anymore are skipped.
+     */
+    public List<GrantedAuthority> decode(long bits) {
+        State current = state;
+        return current.decoded.computeIfAbsent(bits, current::decode);
+    }
+
+    private final class State {
+
+        private final Map<String, Authority> authorities = new HashMap<>();
+
+        private final List<String> names;
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+
+        private final Map<String, GrantedAuthority> grantedAuthorities = new HashMap<>();
+
+        private final GrantedAuthority[] byOrdinal = new GrantedAuthority[MAX_ORDINAL + 1];
+
+        private final Map<Long, List<GrantedAuthority>> decoded = new ConcurrentHashMap<>();
+
+        State(List<Authority> authorities) {
+            List<String> authorityNames = new ArrayList<>(authorities.size());
+            for (Authority authority : authorities) {
+                this.authorities.put(authority.getName(), authority);
+                authorityNames.add(authority.getName());
+                GrantedAuthority grantedAuthority = new SimpleGrantedAuthority(authority.getName());
+                grantedAuthorities.put(authority.getName(), grantedAuthority);
+                Integer ordinal = authority.getOrdinal();
+                if (ordinal != null && ordinal >= 0 && ordinal <= MAX_ORDINAL) {
+                    ordinals.put(authority.getName(), ordinal);
+                    byOrdinal[ordinal] = grantedAuthority;
+                }
+            }
+            this.names = Collections.unmodifiableList(authorityNames);
+        }
+
+        private List<GrantedAuthority> decode(long bits) {
+            List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(bits));
+            for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+                GrantedAuthority grantedAuthority = byOrdinal[Long.numberOfTrailingZeros(remaining)];
+                if (grantedAuthority != null) {
+                    authorities.add(grantedAuthority);
+                } else {
+                    log.warn("Unknown authority ordinal {}", Long.numberOfTrailingZeros(remaining));
+                }
+            }
+            return Collections.unmodifiableList(authorities);
+        }
+    }
+}
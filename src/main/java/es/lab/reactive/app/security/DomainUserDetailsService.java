@@ -6,7 +6,6 @@ import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -26,8 +25,11 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
 
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final AuthorityRegistry authorityRegistry;
+
+    public DomainUserDetailsService(UserRepository userRepository, AuthorityRegistry authorityRegistry) {
         this.userRepository = userRepository;
+        this.authorityRegistry = authorityRegistry;
     }
 
     @Override
@@ -52,7 +54,7 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
         List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
-            .map(authority -> new SimpleGrantedAuthority(authority.getName()))
+            .map(authority -> authorityRegistry.getGrantedAuthority(authority.getName()))
             .collect(Collectors.toList());
         return new org.springframework.security.core.userdetails.User(user.getLogin(),
             user.getPassword(),
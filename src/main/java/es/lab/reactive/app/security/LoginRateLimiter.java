@@ -0,0 +1,108 @@
+package es.lab.reactive.app.security;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Throttles the unauthenticated endpoints that are expensive to serve: authentication (a BCrypt hash and an audit
+ * event per attempt), registration and password reset.
+ * <p>
+ * Requests are limited both per client IP address and per login (or email), with token buckets held in memory.
+ * Checks happen before any hashing or database access.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final String METRIC_PREFIX = "security.rate.limit";
+
+    private final Logger log = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final boolean enabled;
+
+    private final TokenBuckets ipBuckets;
+
+    private final TokenBuckets loginBuckets;
+
+    private final Counter ipRejections;
+
+    private final Counter loginRejections;
+
+    public LoginRateLimiter(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Security.RateLimit properties = applicationProperties.getSecurity().getRateLimit();
+        this.enabled = properties.isEnabled();
+        this.ipBuckets = new TokenBuckets(properties.getIpCapacity(), properties.getIpRefillPerMinute(), properties.getMaxEntries());
+        this.loginBuckets = new TokenBuckets(properties.getLoginCapacity(), properties.getLoginRefillPerMinute(), properties.getMaxEntries());
+
+        this.ipRejections = Counter.builder(METRIC_PREFIX + ".rejected").tag("key", "ip")
+            .description("Requests rejected because their client IP address is throttled").register(meterRegistry);
+        this.loginRejections = Counter.builder(METRIC_PREFIX + ".rejected").tag("key", "login")
+            .description("Requests rejected because their login is throttled").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".buckets", ipBuckets, TokenBuckets::size).tag("key", "ip")
+            .description("Number of client IP addresses being tracked").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".buckets", loginBuckets, TokenBuckets::size).tag("key", "login")
+            .description("Number of logins being tracked").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".capacity", properties, ApplicationProperties.Security.RateLimit::getIpCapacity).tag("key", "ip")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".capacity", properties, ApplicationProperties.Security.RateLimit::getLoginCapacity).tag("key", "login")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".refill.per.minute", properties, ApplicationProperties.Security.RateLimit::getIpRefillPerMinute)
+            .tag("key", "ip").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".refill.per.minute", properties, ApplicationProperties.Security.RateLimit::getLoginRefillPerMinute)
+            .tag("key", "login").register(meterRegistry);
+    }
+
+    /**
+     * Take a request from the allowance of a client IP address.
+     *
+     * @param ip the client IP address.
+     * @return true if the request can proceed, false if it must be rejected.
+     */
+    public boolean tryAcquireForIp(String ip) {
+        if (!enabled || ip == null) {
+            return true;
+        }
+        if (ipBuckets.tryConsume(ip, System.nanoTime())) {
+            return true;
+        }
+        log.debug("Throttling requests from {}", ip);
+        ipRejections.increment();
+        return false;
+    }
+
+    /**
+     * Take an attempt from the allowance of a login or an email.
+     *
+     * @param login the login or the email, compared case-insensitively.
+     * @return true if the request can proceed, false if it must be rejected.
+     */
+    public boolean tryAcquireForLogin(String login) {
+        if (!enabled || login == null) {
+            return true;
+        }
+        if (loginBuckets.tryConsume(login.toLowerCase(Locale.ENGLISH), System.nanoTime())) {
+            return true;
+        }
+        log.debug("Throttling attempts for login {}", login);
+        loginRejections.increment();
+        return false;
+    }
+
+    /**
+     * Drop the buckets of the keys that have been idle for long enough, in case they are never seen again.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void expireIdleBuckets() {
+        long now = System.nanoTime();
+        ipBuckets.expire(now);
+        loginBuckets.expire(now);
+    }
+}
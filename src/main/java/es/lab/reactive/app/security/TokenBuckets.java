@@ -0,0 +1,110 @@
+package es.lab.reactive.app.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token buckets keyed by an arbitrary string, in a lock-striped map.
+ * <p>
+ * Each stripe keeps its buckets in access order, so the idle ones are always at its head: expiring them only looks
+ * at buckets that are due, and a bucket idle for long enough to be full again is dropped, as it would behave like a new one.
+ */
+final class TokenBuckets {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private final long idleTimeoutNanos;
+
+    TokenBuckets(int capacity, int refillPerMinute, int maxEntries) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / 60e9;
+        this.idleTimeoutNanos = (long) Math.ceil(capacity / tokensPerNano);
+        int maxEntriesPerStripe = Math.max(1, maxEntries / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(maxEntriesPerStripe);
+        }
+    }
+
+    /**
+     * Take a token from the bucket of a key.
+     *
+     * @param key the key.
+     * @param now the current {@link System#nanoTime()}.
+     * @return true if a token was available, false if the key is throttled.
+     */
+    boolean tryConsume(String key, long now) {
+        Stripe stripe = stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPES];
+        synchronized (stripe) {
+            stripe.expire(now);
+            long[] bucket = stripe.buckets.get(key);
+            double tokens = capacity;
+            if (bucket != null) {
+                tokens = Math.min(capacity, Double.longBitsToDouble(bucket[0]) + (now - bucket[1]) * tokensPerNano);
+            } else {
+                bucket = new long[2];
+                stripe.buckets.put(key, bucket);
+            }
+            boolean consumed = tokens >= 1;
+            if (consumed) {
+                tokens -= 1;
+            }
+            bucket[0] = Double.doubleToRawLongBits(tokens);
+            bucket[1] = now;
+            return consumed;
+        }
+    }
+
+    /**
+     * Drop the buckets that have been idle long enough to be full again.
+     *
+     * @param now the current {@link System#nanoTime()}.
+     */
+    void expire(long now) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expire(now);
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private final class Stripe {
+
+        /**
+         * Bucket state is {@code [tokens as double bits, last update time in nanos]}.
+         */
+        private final LinkedHashMap<String, long[]> buckets;
+
+        Stripe(int maxEntries) {
+            this.buckets = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        private void expire(long now) {
+            Iterator<long[]> iterator = buckets.values().iterator();
+            while (iterator.hasNext() && now - iterator.next()[1] >= idleTimeoutNanos) {
+                iterator.remove();
+            }
+        }
+    }
+}
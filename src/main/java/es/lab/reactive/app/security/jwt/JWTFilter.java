@@ -1,5 +1,6 @@
 package es.lab.reactive.app.security.jwt;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
@@ -19,16 +20,22 @@ public class JWTFilter implements WebFilter {
 
     private final TokenProvider tokenProvider;
 
-    public JWTFilter(TokenProvider tokenProvider) {
+    private final TokenRevocationService tokenRevocationService;
+
+    public JWTFilter(TokenProvider tokenProvider, TokenRevocationService tokenRevocationService) {
         this.tokenProvider = tokenProvider;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String jwt = resolveToken(exchange.getRequest());
-        if (StringUtils.hasText(jwt) && this.tokenProvider.validateToken(jwt)) {
-            Authentication authentication = this.tokenProvider.getAuthentication(jwt);
-            return chain.filter(exchange).subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication));
+        if (StringUtils.hasText(jwt)) {
+            Claims claims = this.tokenProvider.getValidClaims(jwt);
+            if (claims != null && !this.tokenRevocationService.isRevoked(claims, jwt)) {
+                Authentication authentication = this.tokenProvider.getAuthentication(jwt, claims);
+                return chain.filter(exchange).subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication));
+            }
         }
         return chain.filter(exchange);
     }
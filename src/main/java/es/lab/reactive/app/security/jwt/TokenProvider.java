@@ -11,11 +11,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.security.AuthorityRegistry;
+
 import io.github.jhipster.config.JHipsterProperties;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -29,16 +31,27 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    private static final String AUTHORITY_BITS_KEY = "ab";
+
     private Key key;
 
     private long tokenValidityInMilliseconds;
 
     private long tokenValidityInMillisecondsForRememberMe;
 
+    private long accessTokenValidityInMilliseconds;
+
     private final JHipsterProperties jHipsterProperties;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    private final AuthorityRegistry authorityRegistry;
+
+    public TokenProvider(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                         AuthorityRegistry authorityRegistry) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
+        this.authorityRegistry = authorityRegistry;
     }
 
     @PostConstruct
@@ -59,24 +72,43 @@ public class TokenProvider {
         this.tokenValidityInMillisecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt()
                 .getTokenValidityInSecondsForRememberMe();
+        this.accessTokenValidityInMilliseconds =
+            1000 * applicationProperties.getSecurity().getRefreshToken().getAccessTokenValidityInSeconds();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
-        String authorities = authentication.getAuthorities().stream()
-            .map(GrantedAuthority::getAuthority)
-            .collect(Collectors.joining(","));
+        return createToken(authentication, rememberMe ? this.tokenValidityInMillisecondsForRememberMe : this.tokenValidityInMilliseconds);
+    }
 
+    /**
+     * Create a short-lived access token, meant to be renewed with a refresh token.
+     *
+     * @param authentication the authentication to create the token for.
+     * @return the compact token.
+     */
+    public String createAccessToken(Authentication authentication) {
+        return createToken(authentication, this.accessTokenValidityInMilliseconds);
+    }
+
+    private String createToken(Authentication authentication, long validityInMilliseconds) {
         long now = (new Date()).getTime();
-        Date validity;
-        if (rememberMe) {
-            validity = new Date(now + this.tokenValidityInMillisecondsForRememberMe);
+        Date validity = new Date(now + validityInMilliseconds);
+
+        JwtBuilder builder = Jwts.builder()
+            .setId(UUID.randomUUID().toString())
+            .setSubject(authentication.getName());
+
+        // Authorities are stored as a bitset of their ordinals, unless one of them doesn't have an ordinal
+        OptionalLong authorityBits = authorityRegistry.encode(authentication.getAuthorities());
+        if (authorityBits.isPresent()) {
+            builder.claim(AUTHORITY_BITS_KEY, authorityBits.getAsLong());
         } else {
-            validity = new Date(now + this.tokenValidityInMilliseconds);
+            builder.claim(AUTHORITIES_KEY, authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(",")));
         }
 
-        return Jwts.builder()
-            .setSubject(authentication.getName())
-            .claim(AUTHORITIES_KEY, authorities)
+        return builder
             .signWith(key, SignatureAlgorithm.HS512)
             .setExpiration(validity)
             .serializeToJsonWith(new JacksonSerializer())
@@ -84,30 +116,53 @@ public class TokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-            .setSigningKey(key)
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+        return getAuthentication(token, parseClaims(token));
+    }
 
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+    public Authentication getAuthentication(String token, Claims claims) {
+        Collection<? extends GrantedAuthority> authorities = getAuthorities(claims);
 
         User principal = new User(claims.getSubject(), "", authorities);
 
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
+    private Collection<? extends GrantedAuthority> getAuthorities(Claims claims) {
+        Object authorityBits = claims.get(AUTHORITY_BITS_KEY);
+        if (authorityBits instanceof Number) {
+            return authorityRegistry.decode(((Number) authorityBits).longValue());
+        }
+        // Tokens issued before the bitset was introduced list the names of the authorities
+        return Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
+            .map(authorityRegistry::getGrantedAuthority)
+            .collect(Collectors.toList());
+    }
+
     public boolean validateToken(String authToken) {
+        return getValidClaims(authToken) != null;
+    }
+
+    /**
+     * Validate a token and return its claims, so that callers needing both only parse it once.
+     *
+     * @param authToken the compact token.
+     * @return the claims of the token, or {@code null} if the token is not valid.
+     */
+    public Claims getValidClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            return parseClaims(authToken);
         } catch (JwtException | IllegalArgumentException e) {
             log.info("Invalid JWT token.");
             log.trace("Invalid JWT token trace.", e);
         }
-        return false;
+        return null;
+    }
+
+    private Claims parseClaims(String token) {
+        return Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build()
+            .parseClaimsJws(token)
+            .getBody();
     }
 }
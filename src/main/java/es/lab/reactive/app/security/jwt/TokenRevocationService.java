@@ -0,0 +1,118 @@
+package es.lab.reactive.app.security.jwt;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.RevokedToken;
+import es.lab.reactive.app.repository.RevokedTokenRepository;
+
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of revoked JWTs.
+ * <p>
+ * The denylist is persisted in MongoDB and mirrored in memory: a Bloom filter answers the common "not revoked" case
+ * without any lookup, and only its positives are checked against the exact set of revoked token ids.
+ * Both are periodically rebuilt from the database, which picks up revocations made by other instances and forgets
+ * tokens that have expired since.
+ */
+@Component
+public class TokenRevocationService {
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final TokenProvider tokenProvider;
+
+    private final ApplicationProperties.Security.Revocation properties;
+
+    private volatile Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, TokenProvider tokenProvider,
+                                  ApplicationProperties applicationProperties) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.tokenProvider = tokenProvider;
+        this.properties = applicationProperties.getSecurity().getRevocation();
+        this.bloomFilter = new BloomFilter(properties.getExpectedInsertions(), properties.getFalsePositiveProbability());
+    }
+
+    /**
+     * Check if a token has been revoked.
+     *
+     * @param claims the already validated claims of the token.
+     * @param token  the compact token.
+     * @return true if the token has been revoked, false otherwise.
+     */
+    public boolean isRevoked(Claims claims, String token) {
+        String tokenId = getTokenId(claims, token);
+        return bloomFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param token the compact token to revoke.
+     * @return an empty {@link Mono}, or an error if the token is not valid.
+     */
+    public Mono<Void> revoke(String token) {
+        Claims claims = tokenProvider.getValidClaims(token);
+        if (claims == null) {
+            return Mono.error(new IllegalArgumentException("Only a valid token can be revoked"));
+        }
+        RevokedToken revokedToken = new RevokedToken(getTokenId(claims, token), claims.getExpiration().toInstant());
+        return revokedTokenRepository.save(revokedToken)
+            .doOnNext(this::register)
+            .then();
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.revocation.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        rebuildReactively().block();
+    }
+
+    public Mono<Void> rebuildReactively() {
+        return revokedTokenRepository.findAllByExpiresAtAfter(Instant.now())
+            .collectMap(RevokedToken::getId, RevokedToken::getExpiresAt, ConcurrentHashMap::new)
+            .doOnNext(this::replaceWith)
+            .then();
+    }
+
+    private synchronized void register(RevokedToken revokedToken) {
+        log.debug("Revoked token {}", revokedToken);
+        revokedTokens.put(revokedToken.getId(), revokedToken.getExpiresAt());
+        bloomFilter.put(revokedToken.getId());
+    }
+
+    private synchronized void replaceWith(Map<String, Instant> persistedTokens) {
+        Instant now = Instant.now();
+        // Keep local revocations that happened while the database was being read
+        revokedTokens.forEach((tokenId, expiresAt) -> {
+            if (expiresAt.isAfter(now)) {
+                persistedTokens.putIfAbsent(tokenId, expiresAt);
+            }
+        });
+        BloomFilter filter = new BloomFilter(Math.max(properties.getExpectedInsertions(), 2 * persistedTokens.size()),
+            properties.getFalsePositiveProbability());
+        persistedTokens.keySet().forEach(filter::put);
+        this.bloomFilter = filter;
+        this.revokedTokens = persistedTokens;
+        log.debug("Rebuilt the revoked token filter with {} entries", persistedTokens.size());
+    }
+
+    /**
+     * Tokens issued before the {@code jti} claim was introduced are identified by their signature.
+     */
+    private static String getTokenId(Claims claims, String token) {
+        return claims.getId() != null ? claims.getId() : token.substring(token.lastIndexOf('.') + 1);
+    }
+}
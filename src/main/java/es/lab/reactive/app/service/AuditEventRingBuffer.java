@@ -0,0 +1,70 @@
+package es.lab.reactive.app.service;
+
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The latest audit events, in a fixed-size, lock-free ring buffer.
+ * <p>
+ * Writers claim a sequence number and overwrite the oldest slot. Each slot remembers the sequence it was written for,
+ * so readers skip the slots that are overwritten or not written yet instead of waiting for the writers.
+ */
+final class AuditEventRingBuffer {
+
+    private final AtomicReferenceArray<Slot> slots;
+
+    private final int mask;
+
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param capacity the number of audit events kept, rounded up to a power of two.
+     */
+    AuditEventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void add(AuditEvent auditEvent) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), new Slot(sequence, auditEvent));
+    }
+
+    /**
+     * @param limit the maximum number of audit events to get.
+     * @return the latest audit events, newest first.
+     */
+    List<AuditEvent> getLatest(int limit) {
+        long end = next.get();
+        long start = Math.max(0, end - Math.min(Math.max(0, limit), capacity()));
+        List<AuditEvent> latest = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            Slot slot = slots.get((int) (sequence & mask));
+            if (slot != null && slot.sequence == sequence) {
+                latest.add(slot.auditEvent);
+            }
+        }
+        return latest;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    private static final class Slot {
+
+        private final long sequence;
+
+        private final AuditEvent auditEvent;
+
+        private Slot(long sequence, AuditEvent auditEvent) {
+            this.sequence = sequence;
+            this.auditEvent = auditEvent;
+        }
+    }
+}
@@ -1,22 +1,39 @@
 package es.lab.reactive.app.service;
 
 import io.github.jhipster.config.JHipsterProperties;
+import es.lab.reactive.app.config.ApplicationProperties;
 import es.lab.reactive.app.config.audit.AuditEventConverter;
+import es.lab.reactive.app.domain.AuditEventStats;
 import es.lab.reactive.app.domain.PersistentAuditEvent;
+import es.lab.reactive.app.repository.AuditEventStatsRepository;
+import es.lab.reactive.app.repository.MonthlyAuditEventRepository;
 import es.lab.reactive.app.repository.PersistenceAuditEventRepository;
+import es.lab.reactive.app.service.dto.KeysetPage;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.DirectProcessor;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.springframework.boot.actuate.security.AuthenticationAuditListener.AUTHENTICATION_FAILURE;
 import static org.springframework.boot.actuate.security.AuthenticationAuditListener.AUTHENTICATION_SUCCESS;
@@ -34,6 +51,13 @@ public class AuditEventService {
      */
     private static final int EVENT_DATA_COLUMN_MAX_LENGTH = 255;
 
+    /**
+     * Number of time periods whose audit event count is cached.
+     */
+    private static final int MAX_CACHED_COUNTS_BY_DATES = 64;
+
+    private static final Sort KEYSET_SORT = Sort.by(Sort.Direction.DESC, "auditEventDate", "id");
+
     private final Logger log = LoggerFactory.getLogger(AuditEventService.class);
 
     private final JHipsterProperties jHipsterProperties;
@@ -42,17 +66,61 @@ public class AuditEventService {
 
     private final AuditEventConverter auditEventConverter;
 
+    private final AuditEventWriter auditEventWriter;
+
+    private final MonthlyAuditEventRepository monthlyAuditEventRepository;
+
+    private final AuditEventStatsRepository auditEventStatsRepository;
+
+    private final boolean partitioned;
+
+    private final CachedCount cachedCount;
+
+    private final ApplicationProperties.Pagination paginationProperties;
+
+    private final Map<List<Instant>, CachedCount> cachedCountsByDates = Collections.synchronizedMap(
+        new LinkedHashMap<List<Instant>, CachedCount>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Instant>, CachedCount> eldest) {
+                return size() > MAX_CACHED_COUNTS_BY_DATES;
+            }
+        });
+
+    private final AuditEventRingBuffer recentAuditEvents;
+
+    private final DirectProcessor<AuditEvent> newAuditEvents = DirectProcessor.create();
+
+    private final FluxSink<AuditEvent> newAuditEventsSink = newAuditEvents.sink();
+
     public AuditEventService(
         PersistenceAuditEventRepository persistenceAuditEventRepository,
-        AuditEventConverter auditEventConverter, JHipsterProperties jhipsterProperties) {
+        AuditEventConverter auditEventConverter, JHipsterProperties jhipsterProperties,
+        AuditEventWriter auditEventWriter, MonthlyAuditEventRepository monthlyAuditEventRepository,
+        AuditEventStatsRepository auditEventStatsRepository, ApplicationProperties applicationProperties,
+        ReactiveMongoTemplate mongoTemplate) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
         this.jHipsterProperties = jhipsterProperties;
+        this.auditEventWriter = auditEventWriter;
+        this.monthlyAuditEventRepository = monthlyAuditEventRepository;
+        this.auditEventStatsRepository = auditEventStatsRepository;
+        this.partitioned = applicationProperties.getAuditEvents().getStorage() == ApplicationProperties.AuditEvents.Storage.MONTHLY_PARTITIONS;
+        Mono<Long> exactCount = Mono.defer(() -> partitioned ? monthlyAuditEventRepository.count() : persistenceAuditEventRepository.count());
+        // Partitions are counted one by one anyway, so they are only estimated in a single collection
+        Mono<Long> estimatedCount = partitioned ? exactCount : Mono.defer(() -> Mono.from(
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(PersistentAuditEvent.class)).estimatedDocumentCount()));
+        this.paginationProperties = applicationProperties.getPagination();
+        this.cachedCount = new CachedCount(exactCount, estimatedCount, paginationProperties);
+        this.recentAuditEvents = new AuditEventRingBuffer(applicationProperties.getAuditEvents().getRecentCapacity());
     }
 
     /**
      * Old audit events should be automatically deleted after 30 days.
+     * <p>
+     * They are expired by a TTL index on their date, which MongoDB applies in the background: this only removes,
+     * with a single delete, the ones that are past the exact cutoff but not expired yet. With monthly partitions,
+     * the partitions older than the cutoff are dropped instead. The statistics of the removed events go with them.
      *
      * This is scheduled to get fired at 12:00 (am).
      */
@@ -62,36 +130,151 @@ public class AuditEventService {
     }
 
     public Mono<Void> removeOldAuditEventsReactively() {
-        return persistenceAuditEventRepository
-            .findByAuditEventDateBefore(Instant.now().minus(jHipsterProperties.getAuditEvents().getRetentionPeriod(), ChronoUnit.DAYS))
-            .flatMap(auditEvent -> {
-                log.debug("Deleting audit data {}", auditEvent);
-                return persistenceAuditEventRepository.delete(auditEvent);
-            })
-            .then();
+        Instant before = Instant.now().minus(jHipsterProperties.getAuditEvents().getRetentionPeriod(), ChronoUnit.DAYS);
+        Mono<Void> removeEvents = partitioned ? monthlyAuditEventRepository.deleteByAuditEventDateBefore(before)
+            : persistenceAuditEventRepository
+                .deleteByAuditEventDateBefore(before)
+                .doOnNext(count -> log.debug("Deleted {} old audit events", count))
+                .then();
+        return removeEvents.then(auditEventStatsRepository.deleteByHourBefore(before.truncatedTo(ChronoUnit.HOURS)));
     }
 
     public Flux<AuditEvent> findAll(Pageable pageable) {
-        return persistenceAuditEventRepository.findAllBy(pageable)
+        return (partitioned ? monthlyAuditEventRepository.findAllBy(pageable) : persistenceAuditEventRepository.findAllBy(pageable))
             .map(auditEventConverter::convertToAuditEvent);
     }
 
     public Flux<AuditEvent> findByDates(Instant fromDate, Instant toDate, Pageable pageable) {
-        return persistenceAuditEventRepository.findAllByAuditEventDateBetween(fromDate, toDate, pageable)
+        return (partitioned ? monthlyAuditEventRepository.findAllByAuditEventDateBetween(fromDate, toDate, pageable)
+            : persistenceAuditEventRepository.findAllByAuditEventDateBetween(fromDate, toDate, pageable))
             .map(auditEventConverter::convertToAuditEvent);
     }
 
+    /**
+     * Get a page of audit events, newest first, using keyset pagination.
+     *
+     * @param cursor the cursor returned with the previous page, or an empty string for the first page.
+     * @param size the size of the page.
+     * @return the page of audit events, or an {@link IllegalArgumentException} if the cursor is not valid.
+     */
+    public Mono<KeysetPage<AuditEvent>> findPage(String cursor, int size) {
+        return findPage(null, null, cursor, size);
+    }
+
+    /**
+     * Get a page of the audit events in a time period, newest first, using keyset pagination.
+     *
+     * @param fromDate the start of the period, exclusive.
+     * @param toDate the end of the period, exclusive.
+     * @param cursor the cursor returned with the previous page, or an empty string for the first page.
+     * @param size the size of the page.
+     * @return the page of audit events, or an {@link IllegalArgumentException} if the cursor is not valid.
+     */
+    public Mono<KeysetPage<AuditEvent>> findPageByDates(Instant fromDate, Instant toDate, String cursor, int size) {
+        return findPage(fromDate, toDate, cursor, size);
+    }
+
+    /**
+     * @param fromDate the start of the period, or {@code null} for all the audit events.
+     */
+    private Mono<KeysetPage<AuditEvent>> findPage(Instant fromDate, Instant toDate, String cursor, int size) {
+        Flux<PersistentAuditEvent> auditEvents;
+        if (cursor.isEmpty()) {
+            if (partitioned) {
+                auditEvents = monthlyAuditEventRepository.findAllBetweenBefore(fromDate, toDate, null, null, size);
+            } else {
+                auditEvents = fromDate == null ? persistenceAuditEventRepository.findAllBy(PageRequest.of(0, size, KEYSET_SORT))
+                    : persistenceAuditEventRepository.findAllByAuditEventDateBetween(fromDate, toDate, PageRequest.of(0, size, KEYSET_SORT));
+            }
+        } else {
+            Instant auditEventDate;
+            String id;
+            try {
+                String[] values = KeysetCursor.decode(cursor, 2);
+                auditEventDate = Instant.ofEpochMilli(Long.parseLong(values[0]));
+                id = new ObjectId(values[1]).toHexString();
+            } catch (IllegalArgumentException e) {
+                return Mono.error(new IllegalArgumentException("Invalid cursor", e));
+            }
+            if (partitioned) {
+                auditEvents = monthlyAuditEventRepository.findAllBetweenBefore(fromDate, toDate, auditEventDate, id, size);
+            } else {
+                auditEvents = fromDate == null
+                    ? persistenceAuditEventRepository.findAllBefore(auditEventDate, new ObjectId(id), PageRequest.of(0, size, KEYSET_SORT))
+                    : persistenceAuditEventRepository.findAllBetweenBefore(fromDate, toDate, auditEventDate, new ObjectId(id),
+                        PageRequest.of(0, size, KEYSET_SORT));
+            }
+        }
+        return auditEvents.collectList()
+            .map(page -> {
+                List<AuditEvent> content = page.stream().map(auditEventConverter::convertToAuditEvent).collect(Collectors.toList());
+                if (page.size() < size) {
+                    return new KeysetPage<>(content, null);
+                }
+                PersistentAuditEvent last = page.get(page.size() - 1);
+                return new KeysetPage<>(content, KeysetCursor.encode(String.valueOf(last.getAuditEventDate().toEpochMilli()), last.getId()));
+            });
+    }
+
+    /**
+     * Get the hourly audit event counters in a time period, without reading the audit events themselves.
+     *
+     * @param fromDate the start of the period, inclusive; counters are for whole hours.
+     * @param toDate the end of the period, exclusive.
+     * @param auditEventType the type of audit events, or {@code null} for all types.
+     * @param principal the principal, or {@code null} for all principals.
+     */
+    public Flux<AuditEventStats> findStats(Instant fromDate, Instant toDate, String auditEventType, String principal) {
+        return auditEventStatsRepository.findAll(fromDate.truncatedTo(ChronoUnit.HOURS), toDate, auditEventType, principal);
+    }
+
+    /**
+     * Get the latest audit events saved by this instance, from memory.
+     *
+     * @param limit the maximum number of audit events to get; at most {@code application.audit-events.recent-capacity}.
+     * @return the latest audit events, newest first.
+     */
+    public List<AuditEvent> findRecent(int limit) {
+        return recentAuditEvents.getLatest(limit);
+    }
+
+    /**
+     * Follow the audit events saved by this instance, from memory.
+     * <p>
+     * The stream starts with the latest audit events, oldest first, then has each new audit event as it is saved.
+     * Audit events that a slow subscriber can't keep up with are dropped.
+     */
+    public Flux<AuditEvent> streamRecent() {
+        return Flux.defer(() -> {
+            List<AuditEvent> latest = new ArrayList<>(recentAuditEvents.getLatest(recentAuditEvents.capacity()));
+            Collections.reverse(latest);
+            return Flux.fromIterable(latest).concatWith(newAuditEvents.onBackpressureDrop());
+        });
+    }
+
     public Mono<AuditEvent> find(String id) {
-        return persistenceAuditEventRepository.findById(id)
+        return (partitioned ? monthlyAuditEventRepository.findById(id) : persistenceAuditEventRepository.findById(id))
             .map(auditEventConverter::convertToAuditEvent);
     }
 
+    /**
+     * Count all the audit events; the count is cached for {@code application.pagination.count-cache-ttl-ms}.
+     */
     public Mono<Long> count() {
-        return persistenceAuditEventRepository.count();
+        return cachedCount.get();
     }
 
+    /**
+     * Count the audit events in a time period; like {@link #count()}, the count is cached for
+     * {@code application.pagination.count-cache-ttl-ms}, for the {@value #MAX_CACHED_COUNTS_BY_DATES} latest periods.
+     * The collection metadata only has the size of the whole collection, so the count is never estimated.
+     */
     public Mono<Long> countByDates(Instant fromDate, Instant toDate) {
-        return persistenceAuditEventRepository.countByAuditEventDateBetween(fromDate, toDate);
+        return cachedCountsByDates.computeIfAbsent(Arrays.asList(fromDate, toDate), period -> {
+            Mono<Long> exactCount = Mono.defer(() -> partitioned ? monthlyAuditEventRepository.countByAuditEventDateBetween(fromDate, toDate)
+                : persistenceAuditEventRepository.countByAuditEventDateBetween(fromDate, toDate));
+            return new CachedCount(exactCount, exactCount, paginationProperties);
+        }).get();
     }
 
     public Mono<PersistentAuditEvent> saveAuthenticationSuccess(String login) {
@@ -99,7 +282,7 @@ public class AuditEventService {
         persistentAuditEvent.setPrincipal(login);
         persistentAuditEvent.setAuditEventType(AUTHENTICATION_SUCCESS);
         persistentAuditEvent.setAuditEventDate(Instant.now());
-        return persistenceAuditEventRepository.save(persistentAuditEvent);
+        return save(persistentAuditEvent);
     }
 
     public Mono<PersistentAuditEvent> saveAuthenticationError(String login, Throwable e) {
@@ -111,7 +294,21 @@ public class AuditEventService {
         eventData.put("type", e.getClass().getName());
         eventData.put("message", e.getMessage());
         persistentAuditEvent.setData(truncate(eventData));
-        return persistenceAuditEventRepository.save(persistentAuditEvent);
+        return save(persistentAuditEvent);
+    }
+
+    /**
+     * Audit events are written in the background, so the caller doesn't wait for the database, and kept in memory
+     * for the recent activity.
+     */
+    private Mono<PersistentAuditEvent> save(PersistentAuditEvent persistentAuditEvent) {
+        return Mono.fromRunnable(() -> {
+                AuditEvent auditEvent = auditEventConverter.convertToAuditEvent(persistentAuditEvent);
+                recentAuditEvents.add(auditEvent);
+                newAuditEventsSink.next(auditEvent);
+            })
+            .then(auditEventWriter.write(persistentAuditEvent))
+            .thenReturn(persistentAuditEvent);
     }
 
     /**
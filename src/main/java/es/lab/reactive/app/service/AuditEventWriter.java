@@ -0,0 +1,176 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.PersistentAuditEvent;
+import es.lab.reactive.app.repository.AuditEventStatsRepository;
+import es.lab.reactive.app.repository.MonthlyAuditEventRepository;
+import es.lab.reactive.app.repository.PersistenceAuditEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service for writing audit events in the background.
+ * <p>
+ * Events are queued in memory and inserted in batches, either as soon as a batch is full or after
+ * {@code application.audit-events.flush-interval-ms}. When the queue is full, the configured
+ * {@link ApplicationProperties.AuditEvents.OverflowPolicy} applies. Once a batch is written, its events are counted
+ * in the hourly {@link es.lab.reactive.app.domain.AuditEventStats} counters.
+ */
+@Service
+public class AuditEventWriter {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventWriter.class);
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final MonthlyAuditEventRepository monthlyAuditEventRepository;
+
+    private final AuditEventStatsRepository auditEventStatsRepository;
+
+    private final ApplicationProperties.AuditEvents properties;
+
+    private final BlockingQueue<PersistentAuditEvent> queue;
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final Counter droppedEvents;
+
+    private final Counter failedEvents;
+
+    public AuditEventWriter(PersistenceAuditEventRepository persistenceAuditEventRepository,
+                            MonthlyAuditEventRepository monthlyAuditEventRepository,
+                            AuditEventStatsRepository auditEventStatsRepository,
+                            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.monthlyAuditEventRepository = monthlyAuditEventRepository;
+        this.auditEventStatsRepository = auditEventStatsRepository;
+        this.properties = applicationProperties.getAuditEvents();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        Gauge.builder("audit.events.queued", queue, BlockingQueue::size)
+            .description("Number of audit events waiting to be written").register(meterRegistry);
+        this.droppedEvents = Counter.builder("audit.events.dropped")
+            .description("Audit events discarded because the write queue was full").register(meterRegistry);
+        this.failedEvents = Counter.builder("audit.events.failed")
+            .description("Audit events that could not be written").register(meterRegistry);
+    }
+
+    /**
+     * Queue an audit event to be written.
+     *
+     * @param auditEvent the audit event.
+     * @return a {@link Mono} completing once the event is queued, or once it is written with the
+     * {@link ApplicationProperties.AuditEvents.OverflowPolicy#WRITE_THROUGH WRITE_THROUGH} policy and a full queue.
+     */
+    public Mono<Void> write(PersistentAuditEvent auditEvent) {
+        return Mono.defer(() -> {
+            if (!enqueue(auditEvent)) {
+                return insert(Collections.singletonList(auditEvent));
+            }
+            if (queue.size() >= properties.getBatchSize() && flushing.compareAndSet(false, true)) {
+                flush()
+                    .doFinally(signal -> flushing.set(false))
+                    .subscribe();
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Write all the queued audit events.
+     *
+     * @return a {@link Mono} completing once the events queued so far are written.
+     */
+    public Mono<Void> flush() {
+        return Flux.<List<PersistentAuditEvent>>generate(sink -> {
+                List<PersistentAuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+                queue.drainTo(batch, properties.getBatchSize());
+                if (batch.isEmpty()) {
+                    sink.complete();
+                } else {
+                    sink.next(batch);
+                }
+            })
+            .concatMap(this::insert, 1)
+            .then();
+    }
+
+    @Scheduled(fixedDelayString = "${application.audit-events.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush().block();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        log.debug("Writing {} queued audit events before shutdown", queue.size());
+        flush().block(SHUTDOWN_TIMEOUT);
+    }
+
+    /**
+     * @return false if the event must be written directly, true if it was queued or dropped.
+     */
+    private boolean enqueue(PersistentAuditEvent auditEvent) {
+        switch (properties.getOverflowPolicy()) {
+            case DROP_OLDEST:
+                while (!queue.offer(auditEvent)) {
+                    if (queue.poll() != null) {
+                        droppedEvents.increment();
+                    }
+                }
+                return true;
+            case WRITE_THROUGH:
+                return queue.offer(auditEvent);
+            default:
+                if (!queue.offer(auditEvent)) {
+                    log.warn("Audit event queue is full, dropping {}", auditEvent);
+                    droppedEvents.increment();
+                }
+                return true;
+        }
+    }
+
+    private Mono<Void> insert(List<PersistentAuditEvent> batch) {
+        Flux<PersistentAuditEvent> inserted = properties.getStorage() == ApplicationProperties.AuditEvents.Storage.MONTHLY_PARTITIONS
+            ? monthlyAuditEventRepository.insert(batch)
+            : persistenceAuditEventRepository.insert(batch);
+        return inserted
+            .then()
+            .doOnSuccess(done -> log.debug("Wrote {} audit events", batch.size()))
+            .then(countInStats(batch))
+            .onErrorResume(e -> {
+                log.error("Could not write {} audit events", batch.size(), e);
+                failedEvents.increment(batch.size());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * The events are already written at this point, so failing to count them is only logged.
+     */
+    private Mono<Void> countInStats(List<PersistentAuditEvent> batch) {
+        return Mono.defer(() -> auditEventStatsRepository.increment(batch))
+            .onErrorResume(e -> {
+                log.warn("Could not count {} audit events in the statistics", batch.size(), e);
+                return Mono.empty();
+            });
+    }
+}
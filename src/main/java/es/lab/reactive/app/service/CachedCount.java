@@ -0,0 +1,26 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * A total count shared by the requests made within {@code application.pagination.count-cache-ttl-ms}, optionally
+ * estimated from the collection metadata.
+ */
+final class CachedCount {
+
+    private final Mono<Long> count;
+
+    CachedCount(Mono<Long> exactCount, Mono<Long> estimatedCount, ApplicationProperties.Pagination properties) {
+        Mono<Long> source = properties.isEstimatedCount() ? estimatedCount : exactCount;
+        Duration ttl = Duration.ofMillis(properties.getCountCacheTtlMs());
+        this.count = ttl.isZero() || ttl.isNegative() ? source : source.cache(value -> ttl, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    Mono<Long> get() {
+        return count;
+    }
+}
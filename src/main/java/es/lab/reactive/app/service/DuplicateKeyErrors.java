@@ -0,0 +1,67 @@
+package es.lab.reactive.app.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoServerException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class reading the unique index violated by a MongoDB write.
+ * <p>
+ * The driver doesn't expose the index of a duplicate key error, so it is read from the message of the server, in the
+ * {@code index: <name> dup key} part it has always held; older servers prefix the name with the namespace and a
+ * {@code $}.
+ */
+final class DuplicateKeyErrors {
+
+    private static final Pattern INDEX_NAME = Pattern.compile("index: (?:\\S*\\$)?(\\S+) dup key");
+
+    private DuplicateKeyErrors() {
+    }
+
+    /**
+     * Get the index violated by a write, looking through the causes of the exception, for example the
+     * {@link MongoWriteException} of a Spring {@code DuplicateKeyException}.
+     *
+     * @param e the exception of the write.
+     * @return the name of the violated unique index, or empty if the write failed for another reason.
+     */
+    static Optional<String> getIndexName(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoWriteException) {
+                return getIndexName(((MongoWriteException) cause).getError());
+            }
+            if (cause instanceof MongoBulkWriteException) {
+                MongoBulkWriteException bulkWriteException = (MongoBulkWriteException) cause;
+                return bulkWriteException.getWriteErrors().isEmpty() ? Optional.empty()
+                    : getIndexName(bulkWriteException.getWriteErrors().get(0));
+            }
+            if (cause instanceof MongoServerException) {
+                MongoServerException serverException = (MongoServerException) cause;
+                return getIndexName(serverException.getCode(), serverException.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param error an error of a write, for example a {@code BulkWriteError}.
+     * @return the name of the violated unique index, or empty if the write failed for another reason.
+     */
+    static Optional<String> getIndexName(WriteError error) {
+        return getIndexName(error.getCode(), error.getMessage());
+    }
+
+    private static Optional<String> getIndexName(int code, String message) {
+        if (ErrorCategory.fromErrorCode(code) != ErrorCategory.DUPLICATE_KEY || message == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = INDEX_NAME.matcher(message);
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+}
@@ -0,0 +1,31 @@
+package es.lab.reactive.app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the sort key of the last element of a page into an opaque cursor, and back.
+ */
+final class KeysetCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private KeysetCursor() {
+    }
+
+    static String encode(String... values) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(String.join(SEPARATOR, values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is not valid.
+     */
+    static String[] decode(String cursor, int size) {
+        String[] values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        if (values.length != size) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return values;
+    }
+}
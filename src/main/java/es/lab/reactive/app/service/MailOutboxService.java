@@ -0,0 +1,255 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.OutboxMail;
+import es.lab.reactive.app.repository.OutboxMailRepository;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Service for sending the mails of the {@link OutboxMail} collection.
+ * <p>
+ * Mails survive restarts, and are sent by a few workers, each sending a batch of mails over a single SMTP
+ * connection. Workers claim the mails they send by pushing back their next attempt date, so several instances
+ * can share the outbox. Mails that can't be sent are retried with an exponential backoff.
+ */
+@Service
+public class MailOutboxService {
+
+    private static final String METRIC_PREFIX = "mail.outbox";
+
+    private final Logger log = LoggerFactory.getLogger(MailOutboxService.class);
+
+    private final OutboxMailRepository outboxMailRepository;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final JavaMailSender javaMailSender;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private final ApplicationProperties.Mail.Outbox properties;
+
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    private final AtomicLong pendingMails = new AtomicLong();
+
+    private final AtomicLong abandonedMails = new AtomicLong();
+
+    private final Counter sentMails;
+
+    private final Counter retriedMails;
+
+    private final Counter failedMails;
+
+    public MailOutboxService(OutboxMailRepository outboxMailRepository, ReactiveMongoTemplate mongoTemplate,
+                             JavaMailSender javaMailSender, JHipsterProperties jHipsterProperties,
+                             ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.outboxMailRepository = outboxMailRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.javaMailSender = javaMailSender;
+        this.jHipsterProperties = jHipsterProperties;
+        this.properties = applicationProperties.getMail().getOutbox();
+
+        Gauge.builder(METRIC_PREFIX + ".pending", pendingMails, AtomicLong::get)
+            .description("Mails waiting to be sent or retried").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".abandoned", abandonedMails, AtomicLong::get)
+            .description("Mails abandoned after too many attempts, kept for a week").register(meterRegistry);
+        this.sentMails = Counter.builder(METRIC_PREFIX + ".sent")
+            .description("Mails sent").register(meterRegistry);
+        this.retriedMails = Counter.builder(METRIC_PREFIX + ".retried")
+            .description("Failed attempts to send a mail that will be retried").register(meterRegistry);
+        this.failedMails = Counter.builder(METRIC_PREFIX + ".failed")
+            .description("Mails abandoned after too many attempts").register(meterRegistry);
+    }
+
+    /**
+     * Store a mail in the outbox.
+     *
+     * @return a {@link Mono} completing once the mail is stored; it is sent by the next delivery.
+     */
+    public Mono<Void> enqueue(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+        return outboxMailRepository.save(new OutboxMail(to, subject, content, isMultipart, isHtml))
+            .doOnNext(mail -> log.debug("Queued email to '{}' with subject '{}'", to, subject))
+            .then();
+    }
+
+    /**
+     * Send the mails that are due, until there are none left.
+     *
+     * @return a {@link Mono} completing once no mail is due.
+     */
+    public Mono<Void> deliverDueMails() {
+        return Flux.range(0, properties.getConcurrency())
+            .flatMap(worker -> Mono.defer(this::deliverBatch).repeat().takeWhile(Boolean::booleanValue))
+            .then(Mono.defer(this::updateGauges));
+    }
+
+    /**
+     * Start a delivery, unless the previous one is still running. The delivery is not awaited, so that a slow SMTP
+     * server doesn't hold the thread of the other scheduled tasks.
+     */
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-interval-ms:1000}")
+    public void scheduledDelivery() {
+        if (!delivering.compareAndSet(false, true)) {
+            return;
+        }
+        deliverDueMails()
+            .doFinally(signal -> delivering.set(false))
+            .subscribe(null, e -> log.error("Could not deliver the outbox mails", e));
+    }
+
+    /**
+     * @return true if a batch was sent, false if no mail was due.
+     */
+    private Mono<Boolean> deliverBatch() {
+        return claimBatch()
+            .flatMap(batch -> batch.isEmpty() ? Mono.just(false) : Mono.fromCallable(() -> send(batch))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(failures -> acknowledge(batch, failures))
+                .thenReturn(true));
+    }
+
+    private Mono<List<OutboxMail>> claimBatch() {
+        return Flux.range(0, properties.getBatchSize())
+            .concatMap(i -> claim().map(Optional::of).defaultIfEmpty(Optional.empty()), 1)
+            .takeWhile(Optional::isPresent)
+            .map(Optional::get)
+            .collectList();
+    }
+
+    private Mono<OutboxMail> claim() {
+        Instant now = Instant.now();
+        return mongoTemplate.findAndModify(
+            query(where("nextAttemptAt").lte(now)).with(Sort.by("nextAttemptAt")),
+            new Update().set("nextAttemptAt", now.plusMillis(properties.getLeaseMs())).inc("attempts", 1),
+            FindAndModifyOptions.options().returnNew(true),
+            OutboxMail.class);
+    }
+
+    /**
+     * Send a batch of mails over a single connection.
+     *
+     * @return the mails that could not be sent.
+     */
+    private Set<OutboxMail> send(List<OutboxMail> batch) {
+        Map<MimeMessage, OutboxMail> messages = new LinkedHashMap<>();
+        Set<OutboxMail> failures = new HashSet<>();
+        for (OutboxMail mail : batch) {
+            try {
+                messages.put(createMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                log.warn("Email could not be prepared for user '{}'", mail.getTo(), e);
+                failures.add(mail);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages == null || failedMessages.isEmpty()) {
+                log.warn("Emails could not be sent to {} users", messages.size(), e);
+                failures.addAll(messages.values());
+            } else {
+                failedMessages.forEach((message, cause) -> {
+                    OutboxMail mail = messages.get(message);
+                    log.warn("Email could not be sent to user '{}'", mail.getTo(), cause);
+                    failures.add(mail);
+                });
+            }
+        } catch (MailException e) {
+            log.warn("Emails could not be sent to {} users", messages.size(), e);
+            failures.addAll(messages.values());
+        }
+        return failures;
+    }
+
+    private MimeMessage createMimeMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.isMultipart(), StandardCharsets.UTF_8.name());
+        message.setTo(mail.getTo());
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getContent(), mail.isHtml());
+        return mimeMessage;
+    }
+
+    /**
+     * Remove the mails that were sent, and schedule another attempt for the others.
+     */
+    private Mono<Void> acknowledge(List<OutboxMail> batch, Set<OutboxMail> failures) {
+        List<String> sent = new ArrayList<>(batch.size());
+        for (OutboxMail mail : batch) {
+            if (!failures.contains(mail)) {
+                sent.add(mail.getId());
+            }
+        }
+        sentMails.increment(sent.size());
+        log.debug("Sent {} emails", sent.size());
+        Mono<Void> removeSent = sent.isEmpty() ? Mono.empty()
+            : mongoTemplate.remove(query(where("id").in(sent)), OutboxMail.class).then();
+        return removeSent.then(Flux.fromIterable(failures).concatMap(this::reschedule).then());
+    }
+
+    private Mono<Void> reschedule(OutboxMail mail) {
+        Update update = new Update();
+        if (mail.getAttempts() >= properties.getMaxAttempts()) {
+            log.error("Giving up sending email to user '{}' after {} attempts", mail.getTo(), mail.getAttempts());
+            failedMails.increment();
+            update.unset("nextAttemptAt").set("failedAt", Instant.now());
+        } else {
+            retriedMails.increment();
+            update.set("nextAttemptAt", Instant.now().plus(getBackoff(mail.getAttempts())));
+        }
+        return mongoTemplate.updateFirst(query(where("id").is(mail.getId())), update, OutboxMail.class).then();
+    }
+
+    /**
+     * @param attempts the number of attempts made so far, at least 1.
+     */
+    Duration getBackoff(int attempts) {
+        long backoffMs = properties.getInitialBackoffMs() << Math.min(attempts - 1, 30);
+        return Duration.ofMillis(Math.min(backoffMs, properties.getMaxBackoffMs()));
+    }
+
+    private Mono<Void> updateGauges() {
+        return outboxMailRepository.countByNextAttemptAtNotNull()
+            .doOnNext(pendingMails::set)
+            .then(outboxMailRepository.countByFailedAtNotNull())
+            .doOnNext(abandonedMails::set)
+            .then();
+    }
+}
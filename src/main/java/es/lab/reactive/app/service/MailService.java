@@ -1,106 +1,197 @@
 package es.lab.reactive.app.service;
 
+import es.lab.reactive.app.config.ApplicationProperties;
 import es.lab.reactive.app.domain.User;
 
 import io.github.jhipster.config.JHipsterProperties;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Locale;
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.UnicastProcessor;
 
 /**
  * Service for sending emails.
  * <p>
- * We use the {@link Async} annotation to send emails asynchronously.
+ * Emails are rendered and stored in the outbox by a bounded pipeline: at most {@code application.mail.concurrency}
+ * emails are processed at a time, and at most {@code application.mail.queue-capacity} wait for their turn, so a
+ * burst of sign-ups can't exhaust threads or memory. They are then sent by the {@link MailOutboxService}.
+ * Templates are rendered from skeletons prepared at startup for each language of {@code application.mail.languages}.
+ * <p>
+ * The returned {@link Mono}s complete once the email is stored in the outbox; failures are logged and counted, but
+ * never propagated to the caller.
  */
 @Service
 public class MailService {
 
     private final Logger log = LoggerFactory.getLogger(MailService.class);
 
-    private static final String USER = "user";
+    private static final String METRIC_PREFIX = "mail.requests";
+
+    private static final String ACTIVATION_TEMPLATE = "mail/activationEmail";
+
+    private static final String CREATION_TEMPLATE = "mail/creationEmail";
+
+    private static final String PASSWORD_RESET_TEMPLATE = "mail/passwordResetEmail";
+
+    private static final String ACTIVATION_TITLE_KEY = "email.activation.title";
+
+    private static final String RESET_TITLE_KEY = "email.reset.title";
+
+    private final MailOutboxService mailOutboxService;
 
-    private static final String BASE_URL = "baseUrl";
+    private final ApplicationProperties.Mail properties;
 
-    private final JHipsterProperties jHipsterProperties;
+    private final MailTemplateCache mailTemplateCache;
 
-    private final JavaMailSender javaMailSender;
+    private final Duration timeout;
 
-    private final MessageSource messageSource;
+    private final AtomicInteger pending = new AtomicInteger();
 
-    private final SpringTemplateEngine templateEngine;
+    private final FluxSink<MailRequest> requests;
 
-    public MailService(JHipsterProperties jHipsterProperties, JavaMailSender javaMailSender,
-            MessageSource messageSource, SpringTemplateEngine templateEngine) {
+    private final Timer queuedMails;
+
+    private final Counter rejectedMails;
+
+    private final Counter failedMails;
+
+    private final Counter timedOutMails;
+
+    public MailService(JHipsterProperties jHipsterProperties, MailOutboxService mailOutboxService,
+            MessageSource messageSource, SpringTemplateEngine templateEngine, ApplicationProperties applicationProperties,
+            MeterRegistry meterRegistry) {
+
+        this.mailOutboxService = mailOutboxService;
+        this.properties = applicationProperties.getMail();
+        this.mailTemplateCache = new MailTemplateCache(templateEngine, messageSource, jHipsterProperties.getMail().getBaseUrl());
+        this.timeout = Duration.ofMillis(properties.getTimeoutMs());
+
+        Gauge.builder(METRIC_PREFIX + ".pending", pending, AtomicInteger::get)
+            .description("Emails waiting to be stored in the outbox").register(meterRegistry);
+        this.queuedMails = Timer.builder(METRIC_PREFIX + ".queued")
+            .description("Time to render an email and store it in the outbox").register(meterRegistry);
+        this.rejectedMails = Counter.builder(METRIC_PREFIX + ".rejected")
+            .description("Emails discarded because too many were waiting").register(meterRegistry);
+        this.failedMails = Counter.builder(METRIC_PREFIX + ".failed")
+            .description("Emails that could not be rendered or stored in the outbox").register(meterRegistry);
+        this.timedOutMails = Counter.builder(METRIC_PREFIX + ".timed.out")
+            .description("Emails that took too long to be stored in the outbox").register(meterRegistry);
+
+        UnicastProcessor<MailRequest> queue = UnicastProcessor.create();
+        this.requests = queue.sink();
+        queue.flatMap(this::process, properties.getConcurrency()).subscribe();
+    }
 
-        this.jHipsterProperties = jHipsterProperties;
-        this.javaMailSender = javaMailSender;
-        this.messageSource = messageSource;
-        this.templateEngine = templateEngine;
+    @PostConstruct
+    public void preloadTemplates() {
+        mailTemplateCache.preload(Arrays.asList(ACTIVATION_TEMPLATE, CREATION_TEMPLATE, PASSWORD_RESET_TEMPLATE),
+            Arrays.asList(ACTIVATION_TITLE_KEY, RESET_TITLE_KEY), properties.getLanguages());
     }
 
-    @Async
-    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+    @PreDestroy
+    public void destroy() {
+        requests.complete();
+    }
+
+    public Mono<Void> sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         log.debug("Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart, isHtml, to, subject, content);
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
-        }  catch (MailException | MessagingException e) {
-            log.warn("Email could not be sent to user '{}'", to, e);
-        }
+        return submit(to, Mono.defer(() -> mailOutboxService.enqueue(to, subject, content, isMultipart, isHtml)));
     }
 
-    @Async
-    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
+    public Mono<Void> sendEmailFromTemplate(User user, String templateName, String titleKey) {
         if (user.getEmail() == null) {
             log.debug("Email doesn't exist for user '{}'", user.getLogin());
-            return;
+            return Mono.empty();
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        return submit(user.getEmail(), Mono.defer(() -> {
+            Locale locale = Locale.forLanguageTag(user.getLangKey());
+            String content = mailTemplateCache.render(templateName, user, locale);
+            String subject = mailTemplateCache.getSubject(titleKey, locale);
+            return mailOutboxService.enqueue(user.getEmail(), subject, content, false, true);
+        }));
     }
 
-    @Async
-    public void sendActivationEmail(User user) {
+    public Mono<Void> sendActivationEmail(User user) {
         log.debug("Sending activation email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/activationEmail", "email.activation.title");
+        return sendEmailFromTemplate(user, ACTIVATION_TEMPLATE, ACTIVATION_TITLE_KEY);
     }
 
-    @Async
-    public void sendCreationEmail(User user) {
+    public Mono<Void> sendCreationEmail(User user) {
         log.debug("Sending creation email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
+        return sendEmailFromTemplate(user, CREATION_TEMPLATE, ACTIVATION_TITLE_KEY);
     }
 
-    @Async
-    public void sendPasswordResetMail(User user) {
+    public Mono<Void> sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
+        return sendEmailFromTemplate(user, PASSWORD_RESET_TEMPLATE, RESET_TITLE_KEY);
+    }
+
+    private Mono<Void> submit(String to, Mono<Void> work) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > properties.getQueueCapacity()) {
+                pending.decrementAndGet();
+                log.warn("Too many emails waiting, discarding email to user '{}'", to);
+                rejectedMails.increment();
+                return Mono.<Void>empty();
+            }
+            MonoProcessor<Void> result = MonoProcessor.create();
+            requests.next(new MailRequest(to, work, result));
+            return result;
+        });
+    }
+
+    private Mono<Void> process(MailRequest request) {
+        long start = System.nanoTime();
+        return request.work
+            .timeout(timeout)
+            .doOnSuccess(done -> queuedMails.record(Duration.ofNanos(System.nanoTime() - start)))
+            .onErrorResume(e -> {
+                if (e instanceof TimeoutException) {
+                    log.warn("Email could not be queued for user '{}' within {}", request.to, timeout);
+                    timedOutMails.increment();
+                } else {
+                    log.warn("Email could not be queued for user '{}'", request.to, e);
+                    failedMails.increment();
+                }
+                return Mono.empty();
+            })
+            .doFinally(signal -> {
+                pending.decrementAndGet();
+                request.result.onComplete();
+            });
+    }
+
+    private static final class MailRequest {
+
+        private final String to;
+
+        private final Mono<Void> work;
+
+        private final MonoProcessor<Void> result;
+
+        private MailRequest(String to, Mono<Void> work, MonoProcessor<Void> result) {
+            this.to = to;
+            this.work = work;
+            this.result = result;
+        }
     }
 }
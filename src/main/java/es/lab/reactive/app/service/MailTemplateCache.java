@@ -0,0 +1,174 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.domain.User;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.unbescape.html.HtmlEscape;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Renders mail templates from pre-rendered skeletons.
+ * <p>
+ * A template is rendered once per locale for a placeholder user whose fields hold unique markers, and the result
+ * is split around the markers: rendering a mail then only concatenates the static parts with the escaped fields of
+ * the user. The skeleton is checked against a second full rendering with other markers, so a template whose
+ * structure depends on the user falls back to a full rendering, as do users with fields that would need escaping.
+ * Subjects are cached per locale too.
+ */
+final class MailTemplateCache {
+
+    private static final String USER = "user";
+
+    private static final String BASE_URL = "baseUrl";
+
+    private static final List<Slot> SLOTS = Collections.unmodifiableList(Arrays.asList(
+        new Slot(User::getLogin, User::setLogin),
+        new Slot(User::getFirstName, User::setFirstName),
+        new Slot(User::getLastName, User::setLastName),
+        new Slot(User::getEmail, User::setEmail),
+        new Slot(User::getImageUrl, User::setImageUrl),
+        new Slot(User::getActivationKey, User::setActivationKey),
+        new Slot(User::getResetKey, User::setResetKey)));
+
+    private final Logger log = LoggerFactory.getLogger(MailTemplateCache.class);
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final MessageSource messageSource;
+
+    private final String baseUrl;
+
+    private final String marker = "m" + UUID.randomUUID().toString().replace("-", "");
+
+    private final Map<String, Optional<Skeleton>> skeletons = new ConcurrentHashMap<>();
+
+    private final Map<String, String> subjects = new ConcurrentHashMap<>();
+
+    MailTemplateCache(SpringTemplateEngine templateEngine, MessageSource messageSource, String baseUrl) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Prepare the skeletons and subjects of templates ahead of their first use.
+     */
+    void preload(Collection<String> templateNames, Collection<String> titleKeys, Collection<String> langKeys) {
+        for (String langKey : langKeys) {
+            Locale locale = Locale.forLanguageTag(langKey);
+            templateNames.forEach(templateName -> getSkeleton(templateName, locale));
+            titleKeys.forEach(titleKey -> getSubject(titleKey, locale));
+        }
+    }
+
+    String render(String templateName, User user, Locale locale) {
+        Optional<Skeleton> skeleton = getSkeleton(templateName, locale);
+        if (skeleton.isPresent()) {
+            String content = skeleton.get().fill(user);
+            if (content != null) {
+                return content;
+            }
+        }
+        return process(templateName, user, locale);
+    }
+
+    String getSubject(String titleKey, Locale locale) {
+        return subjects.computeIfAbsent(titleKey + '_' + locale.toLanguageTag(), key -> messageSource.getMessage(titleKey, null, locale));
+    }
+
+    private Optional<Skeleton> getSkeleton(String templateName, Locale locale) {
+        return skeletons.computeIfAbsent(templateName + '_' + locale.toLanguageTag(), key -> {
+            Skeleton skeleton = Skeleton.parse(process(templateName, placeholderUser("a"), locale), marker + "a");
+            User checkUser = placeholderUser("bb");
+            if (!process(templateName, checkUser, locale).equals(skeleton.fill(checkUser))) {
+                log.warn("Mail template {} depends on the user, it will be fully rendered for every mail", templateName);
+                return Optional.empty();
+            }
+            return Optional.of(skeleton);
+        });
+    }
+
+    private String process(String templateName, User user, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(BASE_URL, baseUrl);
+        return templateEngine.process(templateName, context);
+    }
+
+    private User placeholderUser(String variant) {
+        User user = new User();
+        for (int i = 0; i < SLOTS.size(); i++) {
+            SLOTS.get(i).setter.accept(user, marker + variant + i + "z");
+        }
+        return user;
+    }
+
+    private static final class Slot {
+
+        private final Function<User, String> getter;
+
+        private final BiConsumer<User, String> setter;
+
+        private Slot(Function<User, String> getter, BiConsumer<User, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static final class Skeleton {
+
+        private final String[] parts;
+
+        private final int[] slots;
+
+        private final int length;
+
+        private Skeleton(String[] parts, int[] slots) {
+            this.parts = parts;
+            this.slots = slots;
+            this.length = Arrays.stream(parts).mapToInt(String::length).sum();
+        }
+
+        /**
+         * Split a rendering around the markers of the placeholder user, which are the prefix followed by the slot
+         * index and {@code z}.
+         */
+        private static Skeleton parse(String rendered, String prefix) {
+            List<String> parts = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int from = 0;
+            for (int index = rendered.indexOf(prefix); index >= 0; index = rendered.indexOf(prefix, from)) {
+                int end = rendered.indexOf('z', index + prefix.length());
+                parts.add(rendered.substring(from, index));
+                slots.add(Integer.parseInt(rendered.substring(index + prefix.length(), end)));
+                from = end + 1;
+            }
+            parts.add(rendered.substring(from));
+            return new Skeleton(parts.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * @return the mail for a user, or {@code null} if one of its fields is missing or needs escaping.
+         */
+        private String fill(User user) {
+            StringBuilder content = new StringBuilder(length + 64 * slots.length);
+            content.append(parts[0]);
+            for (int i = 0; i < slots.length; i++) {
+                String value = SLOTS.get(slots[i]).getter.apply(user);
+                if (value == null || !value.equals(HtmlEscape.escapeHtml4Xml(value))) {
+                    return null;
+                }
+                content.append(value).append(parts[i + 1]);
+            }
+            return content.toString();
+        }
+    }
+}
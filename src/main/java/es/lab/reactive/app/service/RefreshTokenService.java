@@ -0,0 +1,96 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.domain.RefreshToken;
+import es.lab.reactive.app.repository.RefreshTokenRepository;
+
+import io.github.jhipster.config.JHipsterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Service for issuing and rotating refresh tokens.
+ * <p>
+ * A refresh token lives as long as a JWT used to (24 hours, or 30 days with "remember me"), while the access tokens
+ * obtained with it are short-lived. Each refresh token can only be used once: using it issues a new one.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, JHipsterProperties jHipsterProperties) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jHipsterProperties = jHipsterProperties;
+    }
+
+    /**
+     * Issue a new refresh token.
+     *
+     * @param login      the login of the user.
+     * @param rememberMe whether the token should last as long as a "remember me" session.
+     * @return the opaque refresh token, to be handed to the client.
+     */
+    public Mono<String> createRefreshToken(String login, boolean rememberMe) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        JHipsterProperties.Security.Authentication.Jwt jwt = jHipsterProperties.getSecurity().getAuthentication().getJwt();
+        long validityInSeconds = rememberMe ? jwt.getTokenValidityInSecondsForRememberMe() : jwt.getTokenValidityInSeconds();
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setId(hash(token));
+        refreshToken.setLogin(login);
+        refreshToken.setRememberMe(rememberMe);
+        refreshToken.setExpiresAt(Instant.now().plusSeconds(validityInSeconds));
+        return refreshTokenRepository.save(refreshToken)
+            .doOnNext(saved -> log.debug("Created refresh token: {}", saved))
+            .thenReturn(token);
+    }
+
+    /**
+     * Use a refresh token: it is removed, and can't be used again.
+     *
+     * @param token the opaque refresh token.
+     * @return the refresh token, or an empty {@link Mono} if it doesn't exist or has expired.
+     */
+    public Mono<RefreshToken> useRefreshToken(String token) {
+        return refreshTokenRepository.deleteByIdAndExpiresAtAfter(hash(token), Instant.now());
+    }
+
+    /**
+     * Remove a refresh token, if it exists.
+     *
+     * @param token the opaque refresh token.
+     * @return an empty {@link Mono}.
+     */
+    public Mono<Void> deleteRefreshToken(String token) {
+        return refreshTokenRepository.deleteById(hash(token));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.config.Constants;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.repository.UserSearchTermsListener;
+import es.lab.reactive.app.security.AuthorityRegistry;
+import es.lab.reactive.app.security.SecurityUtils;
+import es.lab.reactive.app.service.dto.UserDTO;
+import es.lab.reactive.app.service.dto.UserProvisioningResultDTO;
+import es.lab.reactive.app.service.dto.UserProvisioningResultDTO.Status;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.github.jhipster.security.RandomUtil;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Service for creating users in bulk.
+ * <p>
+ * Rows are handled in batches of {@code application.provisioning.batch-size}: the logins and emails of a batch are
+ * checked with a single query, the passwords are hashed in parallel, and the users are inserted with a single
+ * unordered {@code insertMany}, so that a conflict only fails its own row. Authorities come from the
+ * {@link AuthorityRegistry}.
+ * <p>
+ * The users are activated, with a random password. No email is sent and no reset key is set: a reset key that was
+ * never mailed would make their first password reset request wait for the coalescing window, so that request issues
+ * their first reset key and sends it straight away.
+ */
+@Service
+public class UserProvisioningService {
+
+    /**
+     * Format of the rows: one JSON {@link UserDTO} per line, or CSV with a header naming the columns among
+     * {@code login}, {@code email}, {@code firstName}, {@code lastName}, {@code langKey}, {@code imageUrl} and
+     * {@code authorities} (separated by {@code |}).
+     */
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final char CSV_SEPARATOR = ',';
+
+    private static final Pattern AUTHORITY_SEPARATOR = Pattern.compile("\\|");
+
+    private final Logger log = LoggerFactory.getLogger(UserProvisioningService.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AuthorityRegistry authorityRegistry;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final ApplicationProperties.Provisioning properties;
+
+    public UserProvisioningService(ReactiveMongoTemplate mongoTemplate, AuthorityRegistry authorityRegistry,
+                                   PasswordEncoder passwordEncoder, ObjectMapper objectMapper, Validator validator,
+                                   ApplicationProperties applicationProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.authorityRegistry = authorityRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = applicationProperties.getProvisioning();
+    }
+
+    /**
+     * Create users from rows.
+     *
+     * @param lines the lines of the rows; blank lines are ignored.
+     * @param format the format of the rows.
+     * @return the result of each row, in the order of the rows.
+     */
+    public Flux<UserProvisioningResultDTO> provisionUsers(Flux<String> lines, Format format) {
+        return Flux.defer(() -> {
+            // Only used by one batch at a time, as batches are handled one after the other
+            Set<String> logins = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            List<String> header = new ArrayList<>();
+            return lines.index()
+                .filter(line -> !line.getT2().trim().isEmpty())
+                .<Row>handle((line, sink) -> {
+                    long number = line.getT1() + 1;
+                    if (format == Format.CSV && header.isEmpty()) {
+                        parseCsvLine(line.getT2()).forEach(column -> header.add(column.trim()));
+                    } else {
+                        sink.next(parse(number, line.getT2(), format, header));
+                    }
+                })
+                .buffer(properties.getBatchSize())
+                .concatMap(batch -> provisionBatch(batch, logins, emails));
+        });
+    }
+
+    private Flux<UserProvisioningResultDTO> provisionBatch(List<Row> batch, Set<String> logins, Set<String> emails) {
+        List<Row> candidates = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.result != null) {
+                continue;
+            }
+            if (logins.contains(row.login)) {
+                row.reject(Status.LOGIN_ALREADY_USED, "Login already used by a previous row");
+            } else if (row.email != null && emails.contains(row.email)) {
+                row.reject(Status.EMAIL_ALREADY_USED, "Email already used by a previous row");
+            } else {
+                logins.add(row.login);
+                if (row.email != null) {
+                    emails.add(row.email);
+                }
+                candidates.add(row);
+            }
+        }
+        return rejectExistingUsers(candidates)
+            .flatMap(newUsers -> hashPasswords(newUsers).then(insert(newUsers)))
+            .thenMany(Flux.fromIterable(batch).map(row -> row.result));
+    }
+
+    /**
+     * @return the rows whose login and email are not used yet.
+     */
+    private Mono<List<Row>> rejectExistingUsers(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return Mono.just(rows);
+        }
+        Query existingUsers = query(new Criteria().orOperator(
+            where("login").in(rows.stream().map(row -> row.login).collect(Collectors.toList())),
+            where("email").in(rows.stream().map(row -> row.email).filter(Objects::nonNull).collect(Collectors.toList()))));
+        existingUsers.fields().include("login").include("email");
+        return mongoTemplate.find(existingUsers, User.class)
+            .collectList()
+            .map(users -> {
+                Set<String> usedLogins = users.stream().map(User::getLogin).collect(Collectors.toSet());
+                Set<String> usedEmails = users.stream().map(User::getEmail).filter(Objects::nonNull).collect(Collectors.toSet());
+                List<Row> newUsers = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    if (usedLogins.contains(row.login)) {
+                        row.reject(Status.LOGIN_ALREADY_USED, "Login name already used!");
+                    } else if (row.email != null && usedEmails.contains(row.email)) {
+                        row.reject(Status.EMAIL_ALREADY_USED, "Email is already in use!");
+                    } else {
+                        newUsers.add(row);
+                    }
+                }
+                return newUsers;
+            });
+    }
+
+    private Mono<Void> hashPasswords(List<Row> rows) {
+        return Flux.fromIterable(rows)
+            .flatMap(row -> Mono.fromRunnable(() -> row.encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword()))
+                .subscribeOn(Schedulers.boundedElastic()), properties.getHashingConcurrency())
+            .then();
+    }
+
+    private Mono<Void> insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return Mono.empty();
+        }
+        return SecurityUtils.getCurrentUserLogin()
+            .switchIfEmpty(Mono.just(Constants.SYSTEM_ACCOUNT))
+            .flatMap(login -> {
+                List<Document> documents = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    Document document = new Document();
+                    mongoTemplate.getConverter().write(toUser(row, login), document);
+                    documents.add(document);
+                }
+                return Mono.from(mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                    .insertMany(documents, new InsertManyOptions().ordered(false)));
+            })
+            .doOnSuccess(result -> rows.forEach(Row::accept))
+            .then()
+            .onErrorResume(MongoBulkWriteException.class, e -> {
+                Map<Integer, BulkWriteError> errors = e.getWriteErrors().stream()
+                    .collect(Collectors.toMap(BulkWriteError::getIndex, error -> error, (first, second) -> first));
+                for (int i = 0; i < rows.size(); i++) {
+                    BulkWriteError error = errors.get(i);
+                    if (error == null) {
+                        rows.get(i).accept();
+                        continue;
+                    }
+                    String index = DuplicateKeyErrors.getIndexName(error).orElse(null);
+                    if (UserService.LOGIN_INDEX.equals(index)) {
+                        rows.get(i).reject(Status.LOGIN_ALREADY_USED, "Login name already used!");
+                    } else if (UserService.EMAIL_INDEX.equals(index)) {
+                        rows.get(i).reject(Status.EMAIL_ALREADY_USED, "Email is already in use!");
+                    } else {
+                        rows.get(i).reject(Status.FAILED, error.getMessage());
+                    }
+                }
+                return Mono.empty();
+            })
+            .onErrorResume(e -> {
+                log.error("Could not create {} users", rows.size(), e);
+                rows.forEach(row -> row.reject(Status.FAILED, e.getMessage()));
+                return Mono.empty();
+            });
+    }
+
+    private User toUser(Row row, String createdBy) {
+        User user = new User();
+        user.setId(row.id);
+        user.setLogin(row.login);
+        user.setFirstName(row.user.getFirstName());
+        user.setLastName(row.user.getLastName());
+        user.setEmail(row.email);
+        user.setImageUrl(row.user.getImageUrl());
+        user.setLangKey(row.user.getLangKey() == null ? Constants.DEFAULT_LANGUAGE : row.user.getLangKey());
+        if (row.user.getAuthorities() != null) {
+            row.user.getAuthorities().forEach(name -> authorityRegistry.getAuthority(name).ifPresent(user.getAuthorities()::add));
+        }
+        user.setPassword(row.encryptedPassword);
+        user.setActivated(true);
+        user.setCreatedBy(createdBy);
+        user.setLastModifiedBy(createdBy);
+        // users are converted without events, so the listener doesn't see them
+        user.setSearchTerms(UserSearchTermsListener.getSearchTerms(user.getLogin(), user.getEmail(),
+            user.getFirstName(), user.getLastName()));
+        return user;
+    }
+
+    private Row parse(long number, String line, Format format, List<String> header) {
+        UserDTO user;
+        try {
+            user = format == Format.CSV ? parseCsvUser(line, header) : objectMapper.readValue(line, UserDTO.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return Row.rejected(number, Status.INVALID, "Could not parse the row: " + e.getMessage());
+        }
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            return Row.rejected(number, Status.INVALID, violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        }
+        return new Row(number, user);
+    }
+
+    private static UserDTO parseCsvUser(String line, List<String> header) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " columns but found " + fields.size());
+        }
+        UserDTO user = new UserDTO();
+        for (int i = 0; i < fields.size(); i++) {
+            String value = fields.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (header.get(i)) {
+                case "login":
+                    user.setLogin(value);
+                    break;
+                case "email":
+                    user.setEmail(value);
+                    break;
+                case "firstName":
+                    user.setFirstName(value);
+                    break;
+                case "lastName":
+                    user.setLastName(value);
+                    break;
+                case "langKey":
+                    user.setLangKey(value);
+                    break;
+                case "imageUrl":
+                    user.setImageUrl(value);
+                    break;
+                case "authorities":
+                    user.setAuthorities(Arrays.stream(AUTHORITY_SEPARATOR.split(value))
+                        .map(String::trim)
+                        .filter(authority -> !authority.isEmpty())
+                        .collect(Collectors.toSet()));
+                    break;
+                default:
+                    // Unknown columns are ignored
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Split a CSV line into its fields; fields may be quoted, with quotes doubled, but can't span several lines.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == CSV_SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class Row {
+
+        private final long number;
+
+        private final UserDTO user;
+
+        private final String id;
+
+        private final String login;
+
+        private final String email;
+
+        private String encryptedPassword;
+
+        private UserProvisioningResultDTO result;
+
+        private Row(long number, UserDTO user) {
+            this.number = number;
+            this.user = user;
+            this.id = user == null ? null : new ObjectId().toHexString();
+            this.login = user == null ? null : user.getLogin().toLowerCase();
+            this.email = user == null || user.getEmail() == null ? null : user.getEmail().toLowerCase();
+        }
+
+        private static Row rejected(long number, Status status, String message) {
+            Row row = new Row(number, null);
+            row.reject(status, message);
+            return row;
+        }
+
+        private void accept() {
+            result = new UserProvisioningResultDTO(number, login, Status.CREATED, id);
+        }
+
+        private void reject(Status status, String message) {
+            result = new UserProvisioningResultDTO(number, login, status, message);
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package es.lab.reactive.app.service;
 
+import es.lab.reactive.app.config.ApplicationProperties;
 import es.lab.reactive.app.config.Constants;
 import es.lab.reactive.app.domain.Authority;
 import es.lab.reactive.app.domain.User;
-import es.lab.reactive.app.repository.AuthorityRepository;
 import es.lab.reactive.app.repository.UserRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.AuthorityRegistry;
 import es.lab.reactive.app.security.SecurityUtils;
+import es.lab.reactive.app.service.dto.KeysetPage;
 import es.lab.reactive.app.service.dto.UserDTO;
 
 import io.github.jhipster.security.RandomUtil;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -21,28 +34,78 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 /**
  * Service class for managing users.
  */
 @Service
 public class UserService {
 
+    /**
+     * Names of the unique indexes on login and email, created by the database migrations.
+     */
+    static final String LOGIN_INDEX = "login";
+
+    static final String EMAIL_INDEX = "email";
+
+    /**
+     * Maximum number of users returned by a search.
+     */
+    public static final int MAX_SEARCH_RESULTS = 100;
+
+    private static final Duration RESET_KEY_VALIDITY = Duration.ofDays(1);
+
+    private static final Duration NOT_ACTIVATED_USER_VALIDITY = Duration.ofDays(3);
+
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
-    private final AuthorityRepository authorityRepository;
+    private final AuthorityRegistry authorityRegistry;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final CachedCount cachedManagedUsersCount;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository) {
+    private final Duration resetCoalescingWindow;
+
+    private final Counter issuedResetKeys;
+
+    private final Counter coalescedResetRequests;
+
+    private final Counter purgedNotActivatedUsers;
+
+    private final Counter expiredResetKeys;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRegistry authorityRegistry,
+                       ReactiveMongoTemplate mongoTemplate, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.authorityRepository = authorityRepository;
+        this.authorityRegistry = authorityRegistry;
+        this.mongoTemplate = mongoTemplate;
+        // The estimated count includes the anonymous user
+        Mono<Long> estimatedCount = Mono.defer(() -> Mono.from(mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+            .estimatedDocumentCount()))
+            .map(count -> Math.max(0, count - 1));
+        this.cachedManagedUsersCount = new CachedCount(Mono.defer(() -> userRepository.countAllByLoginNot(Constants.ANONYMOUS_USER)),
+            estimatedCount, applicationProperties.getPagination());
+        this.resetCoalescingWindow = Duration.ofMillis(applicationProperties.getMail().getResetCoalescingWindowMs());
+        this.issuedResetKeys = Counter.builder("users.password.reset.issued")
+            .description("Password reset keys generated, each followed by an email").register(meterRegistry);
+        this.coalescedResetRequests = Counter.builder("users.password.reset.coalesced")
+            .description("Password reset requests that reused an outstanding key, saving a write and an email").register(meterRegistry);
+        this.purgedNotActivatedUsers = Counter.builder("users.not.activated.purged")
+            .description("Users deleted because they were not activated in time").register(meterRegistry);
+        this.expiredResetKeys = Counter.builder("users.password.reset.expired")
+            .description("Password reset keys removed because they were not used in time").register(meterRegistry);
     }
 
     public Mono<User> activateRegistration(String key) {
@@ -59,8 +122,7 @@ public class UserService {
 
     public Mono<User> completePasswordReset(String newPassword, String key) {
         log.debug("Reset user password for reset key {}", key);
-        return userRepository.findOneByResetKey(key)
-            .filter(user -> user.getResetDate().isAfter(Instant.now().minusSeconds(86400)))
+        return userRepository.findOneByResetKeyAndResetDateAfter(key, Instant.now().minus(RESET_KEY_VALIDITY))
             .publishOn(Schedulers.boundedElastic())
             .map(user -> {
                 user.setPassword(passwordEncoder.encode(newPassword));
@@ -71,63 +133,109 @@ public class UserService {
             .flatMap(this::saveUser);
     }
 
+    /**
+     * Generate a new reset key for the activated user with the given email.
+     * <p>
+     * Requests repeated within {@code application.mail.reset-coalescing-window-ms} of the last generated key reuse it:
+     * nothing is written and no user is returned, so no other email is sent. The key is only replaced if it is still
+     * outside of the window when written, so concurrent requests are coalesced too.
+     *
+     * @param mail the email of the user.
+     * @return the user with its new reset key, or empty if the user doesn't exist or already has a recent reset key.
+     */
     public Mono<User> requestPasswordReset(String mail) {
         return userRepository.findOneByEmailIgnoreCase(mail)
             .filter(User::getActivated)
             .publishOn(Schedulers.boundedElastic())
-            .map(user -> {
-                user.setResetKey(RandomUtil.generateResetKey());
-                user.setResetDate(Instant.now());
-                return user;
-            })
-            .flatMap(this::saveUser);
+            .flatMap(user -> {
+                Instant now = Instant.now();
+                Instant windowStart = now.minus(resetCoalescingWindow);
+                if (user.getResetKey() != null && user.getResetDate() != null && user.getResetDate().isAfter(windowStart)) {
+                    return coalesceResetRequest(user);
+                }
+                Criteria outsideWindow = new Criteria().orOperator(
+                    where("resetKey").is(null), where("resetDate").is(null), where("resetDate").lte(windowStart));
+                return SecurityUtils.getCurrentUserLogin()
+                    .switchIfEmpty(Mono.just(Constants.SYSTEM_ACCOUNT))
+                    .flatMap(login -> mongoTemplate.findAndModify(
+                        query(where("id").is(user.getId())).addCriteria(outsideWindow),
+                        new Update()
+                            .set("resetKey", RandomUtil.generateResetKey())
+                            .set("resetDate", now)
+                            .set("lastModifiedBy", login)
+                            .set("lastModifiedDate", now),
+                        FindAndModifyOptions.options().returnNew(true),
+                        User.class))
+                    .doOnNext(updated -> issuedResetKeys.increment())
+                    .switchIfEmpty(Mono.defer(() -> coalesceResetRequest(user)));
+            });
+    }
+
+    private Mono<User> coalesceResetRequest(User user) {
+        log.debug("Password reset already requested for User: {}, reusing its reset key", user.getLogin());
+        coalescedResetRequests.increment();
+        return Mono.empty();
     }
 
+    /**
+     * Register a new user, which is not activated until its activation key is used.
+     * <p>
+     * The user is inserted straight away, relying on the unique indexes on login and email. Only when one of them is
+     * already used are the conflicting users looked up, in a single query: not activated ones are replaced, activated
+     * ones make the registration fail.
+     */
     public Mono<User> registerUser(UserDTO userDTO, String password) {
-        return userRepository.findOneByLogin(userDTO.getLogin().toLowerCase())
-            .flatMap(existingUser -> {
-                if (!existingUser.getActivated()) {
-                    return userRepository.delete(existingUser);
-                } else {
-                    return Mono.error(new UsernameAlreadyUsedException());
-                }
+        return Mono.fromCallable(() -> {
+            User newUser = new User();
+            String encryptedPassword = passwordEncoder.encode(password);
+            newUser.setLogin(userDTO.getLogin().toLowerCase());
+            // new user gets initially a generated password
+            newUser.setPassword(encryptedPassword);
+            newUser.setFirstName(userDTO.getFirstName());
+            newUser.setLastName(userDTO.getLastName());
+            if (userDTO.getEmail() != null) {
+                newUser.setEmail(userDTO.getEmail().toLowerCase());
+            }
+            newUser.setImageUrl(userDTO.getImageUrl());
+            newUser.setLangKey(userDTO.getLangKey());
+            // new user is not active
+            newUser.setActivated(false);
+            // new user gets registration key
+            newUser.setActivationKey(RandomUtil.generateActivationKey());
+            return newUser;
+        })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(newUser -> {
+                authorityRegistry.getAuthority(AuthoritiesConstants.USER).ifPresent(newUser.getAuthorities()::add);
+                return saveUser(newUser)
+                    .onErrorResume(e -> e instanceof UsernameAlreadyUsedException || e instanceof EmailAlreadyUsedException,
+                        e -> removeNotActivatedUsersUsing(newUser.getLogin(), newUser.getEmail()).then(saveUser(newUser)));
             })
-            .then(userRepository.findOneByEmailIgnoreCase(userDTO.getEmail()))
-            .flatMap(existingUser -> {
-                if (!existingUser.getActivated()) {
-                    return userRepository.delete(existingUser);
-                } else {
-                    return Mono.error(new EmailAlreadyUsedException());
+            .doOnNext(user -> log.debug("Created Information for User: {}", user));
+    }
+
+    /**
+     * Delete the not activated users using a login or an email, or fail if an activated user uses them.
+     */
+    private Mono<Void> removeNotActivatedUsersUsing(String login, String email) {
+        Criteria sameLoginOrEmail = email == null ? where("login").is(login)
+            : new Criteria().orOperator(where("login").is(login), where("email").is(email));
+        return mongoTemplate.find(query(sameLoginOrEmail), User.class)
+            .collectList()
+            .flatMap(existingUsers -> {
+                List<String> notActivated = new ArrayList<>();
+                for (User existingUser : existingUsers) {
+                    if (existingUser.getActivated() && login.equals(existingUser.getLogin())) {
+                        return Mono.error(new UsernameAlreadyUsedException());
+                    }
+                    if (!existingUser.getActivated()) {
+                        notActivated.add(existingUser.getId());
+                    }
                 }
-            })
-            .publishOn(Schedulers.boundedElastic())
-            .then(Mono.fromCallable(() -> {
-                User newUser = new User();
-                String encryptedPassword = passwordEncoder.encode(password);
-                newUser.setLogin(userDTO.getLogin().toLowerCase());
-                // new user gets initially a generated password
-                newUser.setPassword(encryptedPassword);
-                newUser.setFirstName(userDTO.getFirstName());
-                newUser.setLastName(userDTO.getLastName());
-                if (userDTO.getEmail() != null) {
-                    newUser.setEmail(userDTO.getEmail().toLowerCase());
+                if (notActivated.size() < existingUsers.size()) {
+                    return Mono.error(new EmailAlreadyUsedException());
                 }
-                newUser.setImageUrl(userDTO.getImageUrl());
-                newUser.setLangKey(userDTO.getLangKey());
-                // new user is not active
-                newUser.setActivated(false);
-                // new user gets registration key
-                newUser.setActivationKey(RandomUtil.generateActivationKey());
-                return newUser;
-            }))
-            .flatMap(newUser -> {
-                Set<Authority> authorities = new HashSet<>();
-                return authorityRepository.findById(AuthoritiesConstants.USER)
-                    .map(authorities::add)
-                    .thenReturn(newUser)
-                    .doOnNext(user -> user.setAuthorities(authorities))
-                    .flatMap(this::saveUser)
-                    .doOnNext(user -> log.debug("Created Information for User: {}", user));
+                return mongoTemplate.remove(query(where("id").in(notActivated)), User.class).then();
             });
     }
 
@@ -145,10 +253,8 @@ public class UserService {
         } else {
             user.setLangKey(userDTO.getLangKey());
         }
-        return Flux.fromIterable(userDTO.getAuthorities() != null ? userDTO.getAuthorities() : new HashSet<>())
-            .flatMap(authorityRepository::findById)
-            .doOnNext(authority -> user.getAuthorities().add(authority))
-            .then(Mono.just(user))
+        addAuthorities(user, userDTO.getAuthorities());
+        return Mono.just(user)
             .publishOn(Schedulers.boundedElastic())
             .map(newUser -> {
                 String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
@@ -180,18 +286,23 @@ public class UserService {
                 user.setImageUrl(userDTO.getImageUrl());
                 user.setActivated(userDTO.isActivated());
                 user.setLangKey(userDTO.getLangKey());
-                Set<Authority> managedAuthorities = user.getAuthorities();
-                managedAuthorities.clear();
-                return Flux.fromIterable(userDTO.getAuthorities())
-                    .flatMap(authorityRepository::findById)
-                    .map(managedAuthorities::add)
-                    .then(Mono.just(user));
+                user.getAuthorities().clear();
+                addAuthorities(user, userDTO.getAuthorities());
+                return saveUser(user);
             })
-            .flatMap(this::saveUser)
             .doOnNext(user -> log.debug("Changed Information for User: {}", user))
             .map(UserDTO::new);
     }
 
+    /**
+     * Add the shared instances of known authorities to a user; unknown ones are ignored.
+     */
+    private void addAuthorities(User user, Collection<String> authorityNames) {
+        if (authorityNames != null) {
+            authorityNames.forEach(name -> authorityRegistry.getAuthority(name).ifPresent(user.getAuthorities()::add));
+        }
+    }
+
     public Mono<Void> deleteUser(String login) {
         return userRepository.findOneByLogin(login)
             .flatMap(user -> userRepository.delete(user).thenReturn(user))
@@ -234,7 +345,19 @@ public class UserService {
                 }
                 user.setLastModifiedBy(login);
                 return userRepository.save(user);
-            });
+            })
+            .onErrorMap(DuplicateKeyException.class, UserService::toAlreadyUsedException);
+    }
+
+    private static Throwable toAlreadyUsedException(DuplicateKeyException e) {
+        String index = DuplicateKeyErrors.getIndexName(e).orElse(null);
+        if (LOGIN_INDEX.equals(index)) {
+            return new UsernameAlreadyUsedException();
+        }
+        if (EMAIL_INDEX.equals(index)) {
+            return new EmailAlreadyUsedException();
+        }
+        return e;
     }
 
     public Mono<Void> changePassword(String currentClearTextPassword, String newPassword) {
@@ -259,8 +382,68 @@ public class UserService {
         return userRepository.findAllByLoginNot(pageable, Constants.ANONYMOUS_USER).map(UserDTO::new);
     }
 
+    /**
+     * Get a page of users, ordered by login, using keyset pagination.
+     *
+     * @param cursor the cursor returned with the previous page, or an empty string for the first page.
+     * @param size the size of the page.
+     * @return the page of users, or an {@link IllegalArgumentException} if the cursor is not valid.
+     */
+    public Mono<KeysetPage<UserDTO>> getManagedUsersPage(String cursor, int size) {
+        String after;
+        try {
+            after = cursor.isEmpty() ? "" : KeysetCursor.decode(cursor, 1)[0];
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new IllegalArgumentException("Invalid cursor", e));
+        }
+        return userRepository.findAllByLoginAfterAndLoginNot(after, Constants.ANONYMOUS_USER, PageRequest.of(0, size, Sort.by("login")))
+            .map(UserDTO::new)
+            .collectList()
+            .map(users -> new KeysetPage<>(users, users.size() < size ? null : KeysetCursor.encode(users.get(users.size() - 1).getLogin())));
+    }
+
+    /**
+     * Search the users whose login, email, first name or last name, or a word of their names, starts with a query.
+     * <p>
+     * The query is matched, case insensitively, against the lower case search terms of the users, with an anchored
+     * regular expression that only scans the matching range of the {@code search_terms} index. The users are returned
+     * in index order, not sorted, so no matching user needs to be read beyond the first {@code size} ones.
+     *
+     * @param query the prefix to search.
+     * @param size the maximum number of users to return, capped at {@link #MAX_SEARCH_RESULTS}.
+     * @return the matching users.
+     */
+    public Flux<UserDTO> searchUsers(String query, int size) {
+        String prefix = query == null ? "" : query.trim().toLowerCase(Locale.ENGLISH);
+        if (prefix.isEmpty() || size < 1) {
+            return Flux.empty();
+        }
+        return mongoTemplate.find(query(where("searchTerms").regex("^" + escapeRegex(prefix)).and("login").ne(Constants.ANONYMOUS_USER))
+                .limit(Math.min(size, MAX_SEARCH_RESULTS)), User.class)
+            .map(UserDTO::new);
+    }
+
+    /**
+     * Escape every character of a regular expression that isn't a letter or a digit; unlike {@link java.util.regex.Pattern#quote},
+     * this keeps the expression a simple prefix for MongoDB, so it can use index bounds.
+     */
+    static String escapeRegex(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() * 2);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Count the managed users; the count is cached for {@code application.pagination.count-cache-ttl-ms}.
+     */
     public Mono<Long> countManagedUsers() {
-        return userRepository.countAllByLoginNot(Constants.ANONYMOUS_USER);
+        return cachedManagedUsersCount.get();
     }
 
     public Mono<User> getUserWithAuthoritiesByLogin(String login) {
@@ -272,20 +455,45 @@ public class UserService {
     }
 
     /**
-     * Not activated users should be automatically deleted after 3 days.
+     * Not activated users should be automatically deleted after 3 days, and reset keys expire after 24 hours.
      * <p>
      * This is scheduled to get fired everyday, at 01:00 (am).
      */
     @Scheduled(cron = "0 0 1 * * ?")
     public void removeNotActivatedUsers() {
-        removeNotActivatedUsersReactively().blockLast();
+        removeNotActivatedUsersReactively()
+            .then(removeExpiredResetKeys())
+            .block();
     }
 
-    public Flux<User> removeNotActivatedUsersReactively() {
-        return userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .flatMap(user -> userRepository.delete(user).thenReturn(user))
-            .doOnNext(user -> log.debug("Deleted User: {}", user));
+    /**
+     * Delete the not activated users created more than 3 days ago, with a single {@code deleteMany}.
+     *
+     * @return the number of deleted users.
+     */
+    public Mono<Long> removeNotActivatedUsersReactively() {
+        return mongoTemplate.remove(query(where("activated").is(false).and("activationKey").ne(null)
+                .and("createdDate").lt(Instant.now().minus(NOT_ACTIVATED_USER_VALIDITY))), User.class)
+            .map(DeleteResult::getDeletedCount)
+            .doOnNext(count -> {
+                log.debug("Deleted {} not activated users", count);
+                purgedNotActivatedUsers.increment(count);
+            });
+    }
+
+    /**
+     * Remove the reset keys older than 24 hours, which can't be used anymore, with a single {@code updateMany}.
+     *
+     * @return the number of users whose reset key was removed.
+     */
+    public Mono<Long> removeExpiredResetKeys() {
+        return mongoTemplate.updateMulti(query(where("resetKey").ne(null).and("resetDate").lte(Instant.now().minus(RESET_KEY_VALIDITY))),
+                new Update().unset("resetKey").unset("resetDate"), User.class)
+            .map(UpdateResult::getModifiedCount)
+            .doOnNext(count -> {
+                log.debug("Removed {} expired reset keys", count);
+                expiredResetKeys.increment(count);
+            });
     }
 
     /**
@@ -293,7 +501,7 @@ public class UserService {
      * @return a list of all the authorities.
      */
     public Flux<String> getAuthorities() {
-        return authorityRepository.findAll().map(Authority::getName);
+        return Flux.fromIterable(authorityRegistry.getAuthorityNames());
     }
 
 }
@@ -0,0 +1,27 @@
+package es.lab.reactive.app.service.dto;
+
+import java.util.List;
+
+/**
+ * A DTO representing a page of a keyset (cursor based) pagination.
+ */
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the cursor of the next page, or {@code null} if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
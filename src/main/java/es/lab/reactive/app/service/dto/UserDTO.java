@@ -7,8 +7,8 @@ import es.lab.reactive.app.domain.User;
 
 import javax.validation.constraints.*;
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * A DTO representing a user, with his authorities.
@@ -67,9 +67,10 @@ public class UserDTO {
         this.createdDate = user.getCreatedDate();
         this.lastModifiedBy = user.getLastModifiedBy();
         this.lastModifiedDate = user.getLastModifiedDate();
-        this.authorities = user.getAuthorities().stream()
-            .map(Authority::getName)
-            .collect(Collectors.toSet());
+        this.authorities = new HashSet<>(Math.max(user.getAuthorities().size() * 2, 2));
+        for (Authority authority : user.getAuthorities()) {
+            this.authorities.add(authority.getName());
+        }
     }
 
     public String getId() {
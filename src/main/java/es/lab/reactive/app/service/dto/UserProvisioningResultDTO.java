@@ -0,0 +1,58 @@
+package es.lab.reactive.app.service.dto;
+
+/**
+ * A DTO representing the outcome of one row of a bulk user provisioning.
+ */
+public class UserProvisioningResultDTO {
+
+    public enum Status {
+        CREATED, INVALID, LOGIN_ALREADY_USED, EMAIL_ALREADY_USED, FAILED
+    }
+
+    private final long row;
+
+    private final String login;
+
+    private final Status status;
+
+    private final String message;
+
+    public UserProvisioningResultDTO(long row, String login, Status status, String message) {
+        this.row = row;
+        this.login = login;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * @return the number of the row, starting at 1 and counting the CSV header.
+     */
+    public long getRow() {
+        return row;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the id of the created user, or the reason why it was not created.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "UserProvisioningResultDTO{" +
+            "row=" + row +
+            ", login='" + login + '\'' +
+            ", status=" + status +
+            ", message='" + message + '\'' +
+            "}";
+    }
+}
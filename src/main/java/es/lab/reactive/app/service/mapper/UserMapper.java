@@ -19,10 +19,13 @@ import java.util.stream.Collectors;
 public class UserMapper {
 
     public List<UserDTO> usersToUserDTOs(List<User> users) {
-        return users.stream()
-            .filter(Objects::nonNull)
-            .map(this::userToUserDTO)
-            .collect(Collectors.toList());
+        List<UserDTO> userDTOs = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user != null) {
+                userDTOs.add(userToUserDTO(user));
+            }
+        }
+        return userDTOs;
     }
 
     public UserDTO userToUserDTO(User user) {
@@ -0,0 +1,48 @@
+package es.lab.reactive.app.web.filter;
+
+import es.lab.reactive.app.security.LoginRateLimiter;
+import es.lab.reactive.app.web.rest.errors.TooManyRequestsException;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class LoginRateLimitWebFilter implements WebFilter {
+
+    private static final Set<String> THROTTLED_PATHS = new HashSet<>(Arrays.asList(
+        "/api/authenticate", "/api/register", "/api/account/reset-password/init"));
+
+    private final LoginRateLimiter loginRateLimiter;
+
+    public LoginRateLimitWebFilter(LoginRateLimiter loginRateLimiter) {
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    /**
+     * Rejects the requests to the authentication, registration and password reset endpoints coming from a client
+     * IP address that has used up its allowance, before their body is even read.
+     * <p>
+     * The client IP address is the remote address of the request, which {@code server.forward-headers-strategy}
+     * resolves from the {@code X-Forwarded-For} header of the reverse proxy.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (HttpMethod.POST.equals(request.getMethod()) && THROTTLED_PATHS.contains(request.getPath().value())) {
+            InetSocketAddress remoteAddress = request.getRemoteAddress();
+            String ip = remoteAddress == null || remoteAddress.getAddress() == null ? null : remoteAddress.getAddress().getHostAddress();
+            if (!loginRateLimiter.tryAcquireForIp(ip)) {
+                return Mono.error(new TooManyRequestsException());
+            }
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -1,6 +1,7 @@
 package es.lab.reactive.app.web.rest;
 
 import es.lab.reactive.app.repository.UserRepository;
+import es.lab.reactive.app.security.LoginRateLimiter;
 import es.lab.reactive.app.security.SecurityUtils;
 import es.lab.reactive.app.service.MailService;
 import es.lab.reactive.app.service.UserService;
@@ -20,7 +21,6 @@ import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 import java.security.Principal;
-import java.util.Objects;
 
 /**
  * REST controller for managing the current user's account.
@@ -43,11 +43,15 @@ public class AccountResource {
 
     private final MailService mailService;
 
-    public AccountResource(UserRepository userRepository, UserService userService, MailService mailService) {
+    private final LoginRateLimiter loginRateLimiter;
+
+    public AccountResource(UserRepository userRepository, UserService userService, MailService mailService,
+                           LoginRateLimiter loginRateLimiter) {
 
         this.userRepository = userRepository;
         this.userService = userService;
         this.mailService = mailService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     /**
@@ -57,16 +61,19 @@ public class AccountResource {
      * @throws InvalidPasswordException {@code 400 (Bad Request)} if the password is incorrect.
      * @throws EmailAlreadyUsedException {@code 400 (Bad Request)} if the email is already used.
      * @throws LoginAlreadyUsedException {@code 400 (Bad Request)} if the login is already used.
+     * @throws TooManyRequestsException {@code 429 (Too Many Requests)} if the login is throttled.
      */
     @PostMapping("/register")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Void> registerAccount(@Valid @RequestBody ManagedUserVM managedUserVM) {
+        if (!loginRateLimiter.tryAcquireForLogin(managedUserVM.getLogin())) {
+            throw new TooManyRequestsException();
+        }
         if (!checkPasswordLength(managedUserVM.getPassword())) {
             throw new InvalidPasswordException();
         }
         return userService.registerUser(managedUserVM, managedUserVM.getPassword())
-            .doOnSuccess(mailService::sendActivationEmail)
-            .then();
+            .flatMap(mailService::sendActivationEmail);
     }
 
     /**
@@ -118,18 +125,10 @@ public class AccountResource {
     public Mono<Void> saveAccount(@Valid @RequestBody UserDTO userDTO) {
         return SecurityUtils.getCurrentUserLogin()
             .switchIfEmpty(Mono.error(new AccountResourceException("Current user login not found")))
-            .flatMap(userLogin -> userRepository.findOneByEmailIgnoreCase(userDTO.getEmail())
-                .filter(existingUser -> !existingUser.getLogin().equalsIgnoreCase(userLogin))
-                .hasElement()
-                .flatMap(emailExists -> {
-                    if (emailExists) {
-                        throw new EmailAlreadyUsedException();
-                    }
-                    return userRepository.findOneByLogin(userLogin);
-                }))
-                .switchIfEmpty(Mono.error(new AccountResourceException("User could not be found")))
-                .flatMap(user -> userService.updateUser(userDTO.getFirstName(), userDTO.getLastName(), userDTO.getEmail(),
-                    userDTO.getLangKey(), userDTO.getImageUrl()));
+            .flatMap(userRepository::findOneByLogin)
+            .switchIfEmpty(Mono.error(new AccountResourceException("User could not be found")))
+            .flatMap(user -> userService.updateUser(userDTO.getFirstName(), userDTO.getLastName(), userDTO.getEmail(),
+                userDTO.getLangKey(), userDTO.getImageUrl()));
     }
 
     /**
@@ -150,19 +149,20 @@ public class AccountResource {
      * {@code POST   /account/reset-password/init} : Send an email to reset the password of the user.
      *
      * @param mail the mail of the user.
+     * @throws TooManyRequestsException {@code 429 (Too Many Requests)} if the email is throttled.
      */
     @PostMapping(path = "/account/reset-password/init")
     public Mono<Void> requestPasswordReset(@RequestBody String mail) {
+        if (!loginRateLimiter.tryAcquireForLogin(mail)) {
+            throw new TooManyRequestsException();
+        }
         return userService.requestPasswordReset(mail)
-            .doOnSuccess(user -> {
-                if (Objects.nonNull(user)) {
-                    mailService.sendPasswordResetMail(user);
-                } else {
-                    // Pretend the request has been successful to prevent checking which emails really exist
-                    // but log that an invalid attempt has been made
-                    log.warn("Password reset requested for non existing mail");
-                }
-            })
+            .flatMap(user -> mailService.sendPasswordResetMail(user).thenReturn(user))
+            .switchIfEmpty(Mono.fromRunnable(() -> {
+                // Pretend the request has been successful to prevent checking which emails really exist
+                // but log that an invalid attempt has been made
+                log.warn("Password reset requested for non existing mail, or already requested recently");
+            }))
             .then();
     }
 
@@ -1,13 +1,17 @@
 package es.lab.reactive.app.web.rest;
 
+import es.lab.reactive.app.domain.AuditEventStats;
 import es.lab.reactive.app.service.AuditEventService;
+import es.lab.reactive.app.web.rest.util.KeysetPaginationUtil;
 
 import io.github.jhipster.web.util.PaginationUtil;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -48,6 +52,28 @@ public class AuditResource {
             .map(headers -> ResponseEntity.ok().headers(headers).body(auditEventService.findAll(pageable)));
     }
 
+    /**
+     * {@code GET /audits?cursor=} : get a page of {@link AuditEvent}s, newest first, using keyset pagination.
+     * <p>
+     * Unlike offset pagination, the cost of a page doesn't depend on how deep it is.
+     *
+     * @param cursor the cursor of the page, from the {@code X-Next-Cursor} header of the previous page, or empty for the first page.
+     * @param request a {@link ServerHttpRequest} request.
+     * @param pageable the pagination information; only the page size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of {@link AuditEvent}s in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(params = "cursor")
+    public Mono<ResponseEntity<Flux<AuditEvent>>> getPage(@RequestParam String cursor, ServerHttpRequest request, Pageable pageable) {
+        return auditEventService.findPage(cursor, pageable.getPageSize())
+            .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+            .zipWith(auditEventService.count())
+            .map(pageAndTotal -> ResponseEntity.ok()
+                .headers(KeysetPaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request),
+                    pageAndTotal.getT1(), pageAndTotal.getT2()))
+                .body(Flux.fromIterable(pageAndTotal.getT1().getContent())));
+    }
+
     /**
      * {@code GET  /audits} : get a page of {@link AuditEvent} between the {@code fromDate} and {@code toDate}.
      *
@@ -74,6 +100,90 @@ public class AuditResource {
             .map(headers -> ResponseEntity.ok().headers(headers).body(events));
     }
 
+    /**
+     * {@code GET  /audits?fromDate=&toDate=&cursor=} : get a page of {@link AuditEvent}s between the {@code fromDate}
+     * and {@code toDate}, newest first, using keyset pagination.
+     *
+     * @param fromDate the start of the time period of {@link AuditEvent} to get.
+     * @param toDate the end of the time period of {@link AuditEvent} to get.
+     * @param cursor the cursor of the page, from the {@code X-Next-Cursor} header of the previous page, or empty for the first page.
+     * @param request a {@link ServerHttpRequest} request.
+     * @param pageable the pagination information; only the page size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of {@link AuditEvent}s in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(params = {"fromDate", "toDate", "cursor"})
+    public Mono<ResponseEntity<Flux<AuditEvent>>> getPageByDates(
+        @RequestParam(value = "fromDate") LocalDate fromDate,
+        @RequestParam(value = "toDate") LocalDate toDate,
+        @RequestParam String cursor,
+        ServerHttpRequest request,
+        Pageable pageable) {
+
+        Instant from = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Instant to = toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant();
+
+        return auditEventService.findPageByDates(from, to, cursor, pageable.getPageSize())
+            .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+            .zipWith(auditEventService.countByDates(from, to))
+            .map(pageAndTotal -> ResponseEntity.ok()
+                .headers(KeysetPaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request),
+                    pageAndTotal.getT1(), pageAndTotal.getT2()))
+                .body(Flux.fromIterable(pageAndTotal.getT1().getContent())));
+    }
+
+    /**
+     * {@code GET  /audits/stats} : get the number of {@link AuditEvent}s per hour, type and principal, between the
+     * {@code fromDate} and {@code toDate}.
+     * <p>
+     * Counts come from hourly counters maintained as audit events are written, for instance to follow the failed
+     * authentications per principal with {@code type=AUTHENTICATION_FAILURE}.
+     *
+     * @param fromDate the start of the time period.
+     * @param toDate the end of the time period.
+     * @param type the type of {@link AuditEvent}s to count, or all types if missing.
+     * @param principal the principal to count the {@link AuditEvent}s of, or all principals if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of hourly counts in body.
+     */
+    @GetMapping(value = "/stats", params = {"fromDate", "toDate"})
+    public Flux<AuditEventStats> getStats(
+        @RequestParam(value = "fromDate") LocalDate fromDate,
+        @RequestParam(value = "toDate") LocalDate toDate,
+        @RequestParam(value = "type", required = false) String type,
+        @RequestParam(value = "principal", required = false) String principal) {
+
+        Instant from = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Instant to = toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant();
+
+        return auditEventService.findStats(from, to, type, principal);
+    }
+
+    /**
+     * {@code GET  /audits/recent} : get the latest {@link AuditEvent}s, newest first.
+     * <p>
+     * They are kept in memory by each instance, so polling this doesn't touch the database.
+     *
+     * @param limit the maximum number of {@link AuditEvent}s to get.
+     * @return the list of {@link AuditEvent}s.
+     */
+    @GetMapping("/recent")
+    public Flux<AuditEvent> getRecent(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return Flux.fromIterable(auditEventService.findRecent(limit));
+    }
+
+    /**
+     * {@code GET  /audits/recent} : follow the {@link AuditEvent}s as Server-Sent Events.
+     * <p>
+     * The stream starts with the latest {@link AuditEvent}s kept in memory, then has each new one.
+     *
+     * @return the stream of {@link AuditEvent}s.
+     */
+    @GetMapping(value = "/recent", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AuditEvent>> streamRecent() {
+        return auditEventService.streamRecent()
+            .map(auditEvent -> ServerSentEvent.builder(auditEvent).event("audit-event").build());
+    }
+
     /**
      * {@code GET  /audits/:id} : get an {@link AuditEvent} by id.
      *
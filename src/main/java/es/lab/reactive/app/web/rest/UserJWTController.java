@@ -1,19 +1,29 @@
 package es.lab.reactive.app.web.rest;
 
+import es.lab.reactive.app.config.ApplicationProperties;
 import es.lab.reactive.app.config.Constants;
+import es.lab.reactive.app.security.LoginRateLimiter;
+import es.lab.reactive.app.security.SecurityUtils;
 import es.lab.reactive.app.security.jwt.JWTFilter;
 import es.lab.reactive.app.security.jwt.TokenProvider;
+import es.lab.reactive.app.security.jwt.TokenRevocationService;
 import es.lab.reactive.app.service.AuditEventService;
+import es.lab.reactive.app.service.RefreshTokenService;
+import es.lab.reactive.app.web.rest.errors.TooManyRequestsException;
 import es.lab.reactive.app.web.rest.vm.LoginVM;
+import es.lab.reactive.app.web.rest.vm.RefreshTokenVM;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -33,26 +43,93 @@ public class UserJWTController {
 
     private final AuditEventService auditEventService;
 
-    public UserJWTController(TokenProvider tokenProvider, ReactiveAuthenticationManager authenticationManager, AuditEventService auditEventService) {
+    private final TokenRevocationService tokenRevocationService;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final ReactiveUserDetailsService userDetailsService;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final LoginRateLimiter loginRateLimiter;
+
+    public UserJWTController(TokenProvider tokenProvider, ReactiveAuthenticationManager authenticationManager, AuditEventService auditEventService,
+                             TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService,
+                             ReactiveUserDetailsService userDetailsService, ApplicationProperties applicationProperties,
+                             LoginRateLimiter loginRateLimiter) {
         this.tokenProvider = tokenProvider;
         this.authenticationManager = authenticationManager;
         this.auditEventService = auditEventService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.userDetailsService = userDetailsService;
+        this.applicationProperties = applicationProperties;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @PostMapping("/authenticate")
     public Mono<ResponseEntity<JWTToken>> authorize(@Valid @RequestBody Mono<LoginVM> loginVM) {
         return loginVM
+            // Throttled attempts are rejected before the password is hashed or an audit event is written
+            .filter(login -> loginRateLimiter.tryAcquireForLogin(login.getUsername()))
+            .switchIfEmpty(Mono.error(new TooManyRequestsException()))
             .flatMap(login -> authenticationManager
                 .authenticate(new UsernamePasswordAuthenticationToken(login.getUsername(), login.getPassword()))
                 .onErrorResume(throwable -> onAuthenticationError(login, throwable))
                 .flatMap(auth -> onAuthenticationSuccess(login, auth))
-                .flatMap(auth -> Mono.fromCallable(() -> tokenProvider.createToken(auth, Boolean.TRUE.equals(login.isRememberMe()))))
+                .flatMap(auth -> createJWTToken(auth, Boolean.TRUE.equals(login.isRememberMe())))
             )
-            .map(jwt -> {
-                HttpHeaders httpHeaders = new HttpHeaders();
-                httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
-                return new ResponseEntity<>(new JWTToken(jwt), httpHeaders, HttpStatus.OK);
-            });
+            .map(this::toResponseEntity);
+    }
+
+    /**
+     * {@code POST  /authenticate/refresh} : exchange a refresh token for a new access token and a new refresh token.
+     * <p>
+     * The authorities of the user are read again, so changes reach the client at the next refresh.
+     *
+     * @param refreshTokenVM the refresh token, which can't be used again afterwards.
+     * @return the new tokens, or status {@code 401 (Unauthorized)} if the refresh token is invalid or has expired.
+     */
+    @PostMapping("/authenticate/refresh")
+    public Mono<ResponseEntity<JWTToken>> refresh(@Valid @RequestBody Mono<RefreshTokenVM> refreshTokenVM) {
+        return refreshTokenVM
+            .flatMap(vm -> refreshTokenService.useRefreshToken(vm.getRefreshToken()))
+            .switchIfEmpty(Mono.error(new BadCredentialsException("Invalid refresh token")))
+            .flatMap(refreshToken -> userDetailsService.findByUsername(refreshToken.getLogin())
+                .map(user -> new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))
+                .flatMap(auth -> createJWTToken(auth, refreshToken.isRememberMe())))
+            .map(this::toResponseEntity);
+    }
+
+    /**
+     * {@code POST  /authenticate/revoke} : revoke the JWT used to authenticate the current request.
+     * <p>
+     * The token is rejected by every instance until it expires, which is how a client logs out.
+     * The refresh token of the session, if sent, is removed as well.
+     *
+     * @param refreshTokenVM the optional refresh token to remove.
+     */
+    @PostMapping("/authenticate/revoke")
+    public Mono<Void> revoke(@RequestBody(required = false) Mono<RefreshTokenVM> refreshTokenVM) {
+        return refreshTokenVM
+            .filter(vm -> vm.getRefreshToken() != null)
+            .flatMap(vm -> refreshTokenService.deleteRefreshToken(vm.getRefreshToken()))
+            .then(SecurityUtils.getCurrentUserJWT())
+            .flatMap(tokenRevocationService::revoke);
+    }
+
+    private Mono<JWTToken> createJWTToken(Authentication auth, boolean rememberMe) {
+        if (!applicationProperties.getSecurity().getRefreshToken().isEnabled()) {
+            return Mono.fromCallable(() -> new JWTToken(tokenProvider.createToken(auth, rememberMe)));
+        }
+        return refreshTokenService.createRefreshToken(auth.getName(), rememberMe)
+            .map(refreshToken -> new JWTToken(tokenProvider.createAccessToken(auth), refreshToken));
+    }
+
+    private ResponseEntity<JWTToken> toResponseEntity(JWTToken jwtToken) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwtToken.getIdToken());
+        return new ResponseEntity<>(jwtToken, httpHeaders, HttpStatus.OK);
     }
 
     private Mono<? extends Authentication> onAuthenticationSuccess(LoginVM login, Authentication auth) {
@@ -78,10 +155,17 @@ public class UserJWTController {
 
         private String idToken;
 
+        private String refreshToken;
+
         JWTToken(String idToken) {
             this.idToken = idToken;
         }
 
+        JWTToken(String idToken, String refreshToken) {
+            this.idToken = idToken;
+            this.refreshToken = refreshToken;
+        }
+
         @JsonProperty("id_token")
         String getIdToken() {
             return idToken;
@@ -90,5 +174,15 @@ public class UserJWTController {
         void setIdToken(String idToken) {
             this.idToken = idToken;
         }
+
+        @JsonProperty("refresh_token")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String getRefreshToken() {
+            return refreshToken;
+        }
+
+        void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
     }
 }
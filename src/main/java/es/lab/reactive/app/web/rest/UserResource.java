@@ -2,16 +2,18 @@ package es.lab.reactive.app.web.rest;
 
 import es.lab.reactive.app.config.Constants;
 import es.lab.reactive.app.domain.User;
-import es.lab.reactive.app.repository.UserRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
 import es.lab.reactive.app.service.MailService;
 import org.springframework.data.domain.Sort;
 import java.util.Collections;
+import es.lab.reactive.app.service.UserProvisioningService;
 import es.lab.reactive.app.service.UserService;
 import es.lab.reactive.app.service.dto.UserDTO;
+import es.lab.reactive.app.service.dto.UserProvisioningResultDTO;
 import es.lab.reactive.app.web.rest.errors.BadRequestAlertException;
 import es.lab.reactive.app.web.rest.errors.EmailAlreadyUsedException;
 import es.lab.reactive.app.web.rest.errors.LoginAlreadyUsedException;
+import es.lab.reactive.app.web.rest.util.KeysetPaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
@@ -22,6 +24,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -67,6 +70,10 @@ import java.util.Arrays;
 public class UserResource {
     private static final List<String> ALLOWED_ORDERED_PROPERTIES = Collections.unmodifiableList(Arrays.asList("id", "login", "firstName", "lastName", "email", "activated", "langKey"));
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String CSV_VALUE = "text/csv";
+
     private final Logger log = LoggerFactory.getLogger(UserResource.class);
 
     @Value("${jhipster.clientApp.name}")
@@ -74,13 +81,13 @@ public class UserResource {
 
     private final UserService userService;
 
-    private final UserRepository userRepository;
-
     private final MailService mailService;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService) {
+    private final UserProvisioningService userProvisioningService;
+
+    public UserResource(UserService userService, MailService mailService, UserProvisioningService userProvisioningService) {
         this.userService = userService;
-        this.userRepository = userRepository;
+        this.userProvisioningService = userProvisioningService;
         this.mailService = mailService;
     }
 
@@ -102,24 +109,10 @@ public class UserResource {
 
         if (userDTO.getId() != null) {
             throw new BadRequestAlertException("A new user cannot already have an ID", "userManagement", "idexists");
-            // Lowercase the user login before comparing with database
         }
-        return userRepository.findOneByLogin(userDTO.getLogin().toLowerCase())
-            .hasElement()
-            .flatMap(loginExists -> {
-                if (Boolean.TRUE.equals(loginExists)) {
-                    return Mono.error(new LoginAlreadyUsedException());
-                }
-                return userRepository.findOneByEmailIgnoreCase(userDTO.getEmail());
-            })
-            .hasElement()
-            .flatMap(emailExists -> {
-                if (Boolean.TRUE.equals(emailExists)) {
-                    return Mono.error(new EmailAlreadyUsedException());
-                }
-                return userService.createUser(userDTO);
-            })
-            .doOnSuccess(mailService::sendCreationEmail)
+        // The unique indexes on login and email detect the users already using them
+        return userService.createUser(userDTO)
+            .flatMap(user -> mailService.sendCreationEmail(user).thenReturn(user))
             .map(user -> {
                 try {
                     return ResponseEntity.created(new URI("/api/users/" + user.getLogin()))
@@ -131,6 +124,26 @@ public class UserResource {
             });
     }
 
+    /**
+     * {@code POST /admin/users/bulk} : Creates users in bulk.
+     * <p>
+     * The body has one user per line, either as JSON ({@code application/x-ndjson}) or as CSV ({@code text/csv}) with
+     * a header line; see {@link UserProvisioningService.Format}. The users are created as with {@code POST /users},
+     * but no email is sent.
+     *
+     * @param lines the lines of the body.
+     * @param request a {@link ServerHttpRequest} request, whose content type gives the format of the lines.
+     * @return the stream of the results of each row, in the order of the rows.
+     */
+    @PostMapping(value = "/admin/users/bulk", consumes = {NDJSON_VALUE, CSV_VALUE}, produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Flux<UserProvisioningResultDTO> createUsers(@RequestBody Flux<String> lines, ServerHttpRequest request) {
+        log.debug("REST request to create Users in bulk");
+        UserProvisioningService.Format format = MediaType.valueOf(CSV_VALUE).isCompatibleWith(request.getHeaders().getContentType())
+            ? UserProvisioningService.Format.CSV : UserProvisioningService.Format.NDJSON;
+        return userProvisioningService.provisionUsers(lines, format);
+    }
+
     /**
      * {@code PUT /users} : Updates an existing User.
      *
@@ -143,23 +156,7 @@ public class UserResource {
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
     public Mono<ResponseEntity<UserDTO>> updateUser(@Valid @RequestBody UserDTO userDTO) {
         log.debug("REST request to update User : {}", userDTO);
-        return userRepository.findOneByEmailIgnoreCase(userDTO.getEmail())
-            .filter(user -> !user.getId().equals(userDTO.getId()))
-            .hasElement()
-            .flatMap(emailExists -> {
-                if (Boolean.TRUE.equals(emailExists)) {
-                    return Mono.error(new EmailAlreadyUsedException());
-                }
-                return userRepository.findOneByLogin(userDTO.getLogin().toLowerCase());
-            })
-            .filter(user -> !user.getId().equals(userDTO.getId()))
-            .hasElement()
-            .flatMap(loginExists -> {
-                if (Boolean.TRUE.equals(loginExists)) {
-                    return Mono.error(new LoginAlreadyUsedException());
-                }
-                return userService.updateUser(userDTO);
-            })
+        return userService.updateUser(userDTO)
             .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
             .map(user -> ResponseEntity.ok()
                 .headers(HeaderUtil.createAlert(applicationName, "userManagement.updated", userDTO.getLogin()))
@@ -186,6 +183,40 @@ public class UserResource {
             .map(headers -> ResponseEntity.ok().headers(headers).body(userService.getAllManagedUsers(pageable)));
     }
 
+    /**
+     * {@code GET /users?cursor=} : get a page of users, ordered by login, using keyset pagination.
+     *
+     * @param cursor the cursor of the page, from the {@code X-Next-Cursor} header of the previous page, or empty for the first page.
+     * @param request a {@link ServerHttpRequest} request.
+     * @param pageable the pagination information; only the page size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the users,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(value = "/users", params = "cursor")
+    public Mono<ResponseEntity<Flux<UserDTO>>> getUsersPage(@RequestParam String cursor, ServerHttpRequest request, Pageable pageable) {
+        return userService.getManagedUsersPage(cursor, pageable.getPageSize())
+            .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+            .zipWith(userService.countManagedUsers())
+            .map(pageAndTotal -> ResponseEntity.ok()
+                .headers(KeysetPaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request),
+                    pageAndTotal.getT1(), pageAndTotal.getT2()))
+                .body(Flux.fromIterable(pageAndTotal.getT1().getContent())));
+    }
+
+    /**
+     * {@code GET /users/_search?q=} : search the users by a prefix of their login, email, first name or last name.
+     *
+     * @param q the prefix to search, case insensitive.
+     * @param pageable the pagination information; only the page size is used, and capped at {@link UserService#MAX_SEARCH_RESULTS}.
+     * @return the matching users, not sorted.
+     */
+    @GetMapping("/users/_search")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Flux<UserDTO> searchUsers(@RequestParam String q, Pageable pageable) {
+        log.debug("REST request to search Users : {}", q);
+        return userService.searchUsers(q, pageable.getPageSize());
+    }
+
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
         return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains);
     }
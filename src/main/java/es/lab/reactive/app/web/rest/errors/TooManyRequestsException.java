@@ -0,0 +1,13 @@
+package es.lab.reactive.app.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+public class TooManyRequestsException extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyRequestsException() {
+        super(ErrorConstants.TOO_MANY_REQUESTS_TYPE, "Too many requests, try again later", Status.TOO_MANY_REQUESTS);
+    }
+}
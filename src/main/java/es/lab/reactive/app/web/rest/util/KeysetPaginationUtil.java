@@ -0,0 +1,41 @@
+package es.lab.reactive.app.web.rest.util;
+
+import es.lab.reactive.app.service.dto.KeysetPage;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor based) pagination.
+ * <p>
+ * The cursor of the next page is sent in the {@code X-Next-Cursor} header and in a
+ * <a href="https://tools.ietf.org/html/rfc5988">Link header</a>, alongside the usual {@code X-Total-Count}.
+ */
+public final class KeysetPaginationUtil {
+
+    private static final String HEADER_X_TOTAL_COUNT = "X-Total-Count";
+
+    private static final String HEADER_X_NEXT_CURSOR = "X-Next-Cursor";
+
+    private KeysetPaginationUtil() {
+    }
+
+    /**
+     * Generate pagination headers for a keyset page.
+     *
+     * @param uriBuilder the URI of the current request.
+     * @param page the page.
+     * @param total the total number of elements.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generatePaginationHttpHeaders(UriComponentsBuilder uriBuilder, KeysetPage<?> page, long total) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_X_TOTAL_COUNT, Long.toString(total));
+        if (page.getNextCursor() != null) {
+            headers.add(HEADER_X_NEXT_CURSOR, page.getNextCursor());
+            String next = uriBuilder.replaceQueryParam("cursor", page.getNextCursor()).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Utility classes used by the REST controllers.
+ */
+package es.lab.reactive.app.web.rest.util;
@@ -0,0 +1,23 @@
+package es.lab.reactive.app.web.rest.vm;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * View Model object for storing a refresh token.
+ */
+public class RefreshTokenVM {
+
+    @NotNull
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,100 @@
+package es.lab.reactive.app.aop.metrics;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.repository.UserRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link MethodTimingAspect}.
+ */
+public class MethodTimingAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMetrics().getMethodTiming().setSampleRate(1);
+        userRepository = mock(UserRepository.class);
+    }
+
+    @Test
+    public void testTimesMonoFromSubscriptionToTermination() {
+        when(userRepository.findOneByLogin(anyString())).thenReturn(Mono.just(new User()));
+
+        Mono<User> user = proxy().findOneByLogin("johndoe");
+        assertThat(timer("findOneByLogin", "success")).isNull();
+
+        user.block();
+        assertThat(timer("findOneByLogin", "success").count()).isEqualTo(1);
+        // Outcome timers are only registered once used
+        assertThat(timer("findOneByLogin", "error")).isNull();
+        assertThat(timer("findOneByLogin", "cancelled")).isNull();
+        assertThat(meterRegistry.find(MethodTimingAspect.ELEMENTS_NAME).summary()).isNull();
+    }
+
+    @Test
+    public void testTimesErrors() {
+        when(userRepository.findOneByLogin(anyString())).thenReturn(Mono.error(new IllegalStateException()));
+
+        assertThatIllegalStateException().isThrownBy(() -> proxy().findOneByLogin("johndoe").block());
+        assertThat(timer("findOneByLogin", "error").count()).isEqualTo(1);
+        assertThat(timer("findOneByLogin", "success")).isNull();
+    }
+
+    @Test
+    public void testCountsFluxElements() {
+        when(userRepository.findAllByLoginNot(any(), anyString())).thenReturn(Flux.just(new User(), new User(), new User()));
+
+        proxy().findAllByLoginNot(null, "anonymoususer").take(2).blockLast();
+        proxy().findAllByLoginNot(null, "anonymoususer").blockLast();
+        assertThat(timer("findAllByLoginNot", "cancelled").count()).isEqualTo(1);
+        assertThat(timer("findAllByLoginNot", "success").count()).isEqualTo(1);
+        DistributionSummary elements = meterRegistry.find(MethodTimingAspect.ELEMENTS_NAME).tag("method", "findAllByLoginNot").summary();
+        assertThat(elements.count()).isEqualTo(2);
+        assertThat(elements.totalAmount()).isEqualTo(5);
+    }
+
+    @Test
+    public void testSkipsCallsOutsideOfTheSample() {
+        Mono<User> user = Mono.just(new User());
+        when(userRepository.findOneByLogin(anyString())).thenReturn(user);
+        applicationProperties.getMetrics().getMethodTiming().setSampleRate(0);
+
+        assertThat(proxy().findOneByLogin("johndoe")).isSameAs(user);
+        assertThat(meterRegistry.find(MethodTimingAspect.TIMER_NAME).timers()).isEmpty();
+    }
+
+    private UserRepository proxy() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(userRepository);
+        proxyFactory.addInterface(UserRepository.class);
+        proxyFactory.addAspect(new MethodTimingAspect(meterRegistry, applicationProperties));
+        return proxyFactory.getProxy();
+    }
+
+    private Timer timer(String method, String outcome) {
+        return meterRegistry.find(MethodTimingAspect.TIMER_NAME)
+            .tag("class", "UserRepository").tag("method", method).tag("outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,77 @@
+package es.lab.reactive.app.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link MongoCommandMetricsListener}.
+ */
+public class MongoCommandMetricsListenerTest {
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MongoCommandMetricsListener listener;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        listener = new MongoCommandMetricsListener(meterRegistry, new ApplicationProperties());
+    }
+
+    @Test
+    public void testGetCollection() {
+        assertThat(MongoCommandMetricsListener.getCollection("find", new BsonDocument("find", new BsonString("user"))))
+            .isEqualTo("user");
+        assertThat(MongoCommandMetricsListener.getCollection("getMore", new BsonDocument("getMore", new BsonInt64(42))
+            .append("collection", new BsonString("post")))).isEqualTo("post");
+        assertThat(MongoCommandMetricsListener.getCollection("isMaster", new BsonDocument("isMaster", new BsonInt32(1))))
+            .isEqualTo("none");
+    }
+
+    @Test
+    public void testTimesCommandsByCollectionAndStatus() {
+        BsonDocument find = new BsonDocument("find", new BsonString("user"));
+        listener.commandStarted(new CommandStartedEvent(1, CONNECTION, "reactiveApp", "find", find));
+        listener.commandStarted(new CommandStartedEvent(2, CONNECTION, "reactiveApp", "find", find));
+        listener.commandSucceeded(new CommandSucceededEvent(1, CONNECTION, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(5)));
+        listener.commandFailed(new CommandFailedEvent(2, CONNECTION, "find", TimeUnit.MILLISECONDS.toNanos(7), new IllegalStateException()));
+
+        Timer succeeded = timer("find", "user", "SUCCESS");
+        assertThat(succeeded.count()).isEqualTo(1);
+        assertThat(succeeded.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5);
+        assertThat(timer("find", "user", "FAILED").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRegistersTheFailedTimerOnFirstFailure() {
+        listener.commandStarted(new CommandStartedEvent(1, CONNECTION, "reactiveApp", "find", new BsonDocument("find", new BsonString("post"))));
+        listener.commandSucceeded(new CommandSucceededEvent(1, CONNECTION, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(5)));
+
+        assertThat(timer("find", "post", "SUCCESS").count()).isEqualTo(1);
+        assertThat(timer("find", "post", "FAILED")).isNull();
+    }
+
+    private Timer timer(String command, String collection, String status) {
+        return meterRegistry.find(MongoCommandMetricsListener.TIMER_NAME)
+            .tag("command", command).tag("collection", collection).tag("status", status).timer();
+    }
+}
@@ -3,10 +3,13 @@ package es.lab.reactive.app.config;
 import es.lab.reactive.app.service.MailService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @Configuration
 public class NoOpMailConfiguration {
@@ -14,7 +17,11 @@ public class NoOpMailConfiguration {
 
     public NoOpMailConfiguration() {
         mockMailService = mock(MailService.class);
-        doNothing().when(mockMailService).sendActivationEmail(any());
+        when(mockMailService.sendActivationEmail(any())).thenReturn(Mono.empty());
+        when(mockMailService.sendCreationEmail(any())).thenReturn(Mono.empty());
+        when(mockMailService.sendPasswordResetMail(any())).thenReturn(Mono.empty());
+        when(mockMailService.sendEmailFromTemplate(any(), anyString(), anyString())).thenReturn(Mono.empty());
+        when(mockMailService.sendEmail(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean())).thenReturn(Mono.empty());
     }
 
     @Bean
@@ -0,0 +1,78 @@
+package es.lab.reactive.app.config.jackson;
+
+import es.lab.reactive.app.config.JacksonConfiguration;
+import es.lab.reactive.app.domain.Post;
+import es.lab.reactive.app.service.dto.UserDTO;
+import es.lab.reactive.app.web.rest.vm.ManagedUserVM;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class checking that {@link UserDTOSerializer} and {@link PostSerializer} write the same JSON as the bean
+ * serializer.
+ */
+public class PayloadSerializersTest {
+
+    private ObjectMapper beanMapper;
+
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    public void setup() {
+        beanMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper = beanMapper.copy().registerModule(new JacksonConfiguration().payloadSerializersModule());
+    }
+
+    @Test
+    public void testUserDTOSerializer() throws Exception {
+        UserDTO user = new UserDTO();
+        user.setId("id");
+        user.setLogin("johndoe");
+        user.setFirstName("John \"Johnny\"");
+        user.setEmail("john.doe@localhost");
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setCreatedBy("system");
+        user.setCreatedDate(Instant.parse("2020-01-01T10:00:00.123Z"));
+        user.setAuthorities(new HashSet<>(Arrays.asList("ROLE_USER", "ROLE_ADMIN")));
+
+        assertThat(mapper.writeValueAsString(user)).isEqualTo(beanMapper.writeValueAsString(user));
+    }
+
+    @Test
+    public void testUserDTOSerializerWithoutFields() throws Exception {
+        UserDTO user = new UserDTO();
+
+        assertThat(mapper.writeValueAsString(user)).isEqualTo(beanMapper.writeValueAsString(user));
+    }
+
+    @Test
+    public void testUserDTOSubclassKeepsItsFields() throws Exception {
+        ManagedUserVM user = new ManagedUserVM();
+        user.setLogin("johndoe");
+        user.setPassword("password");
+
+        assertThat(mapper.writeValueAsString(user)).isEqualTo(beanMapper.writeValueAsString(user)).contains("\"password\"");
+    }
+
+    @Test
+    public void testPostSerializer() throws Exception {
+        Post post = new Post().title("Title").content("Some\ncontent").date(Instant.parse("2020-01-01T10:00:00Z"));
+        post.setId("id");
+
+        assertThat(mapper.writeValueAsString(post)).isEqualTo(beanMapper.writeValueAsString(post));
+        assertThat(mapper.writeValueAsString(new Post())).isEqualTo(beanMapper.writeValueAsString(new Post()));
+    }
+}
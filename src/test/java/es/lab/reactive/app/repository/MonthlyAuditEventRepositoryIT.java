@@ -0,0 +1,95 @@
+package es.lab.reactive.app.repository;
+
+import es.lab.reactive.app.ReactiveApp;
+import es.lab.reactive.app.domain.PersistentAuditEvent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link MonthlyAuditEventRepository}.
+ */
+@SpringBootTest(classes = ReactiveApp.class)
+public class MonthlyAuditEventRepositoryIT {
+
+    private static final Instant JANUARY = Instant.parse("2020-01-15T10:00:00Z");
+    private static final Instant FEBRUARY = Instant.parse("2020-02-15T10:00:00Z");
+    private static final Instant MARCH = Instant.parse("2020-03-15T10:00:00Z");
+
+    @Autowired
+    private MonthlyAuditEventRepository monthlyAuditEventRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    public void init() {
+        mongoTemplate.getCollectionNames()
+            .filter(name -> name.startsWith("jhi_persistent_audit_event_"))
+            .flatMap(mongoTemplate::dropCollection)
+            .blockLast();
+        monthlyAuditEventRepository.insert(Arrays.asList(
+            createAuditEvent("january", JANUARY),
+            createAuditEvent("february-1", FEBRUARY),
+            createAuditEvent("february-2", FEBRUARY.plusSeconds(1)),
+            createAuditEvent("march", MARCH))).blockLast();
+    }
+
+    @Test
+    public void testEventsAreStoredPerMonth() {
+        List<String> collections = mongoTemplate.getCollectionNames().collectList().block();
+
+        assertThat(collections).contains("jhi_persistent_audit_event_2020_01", "jhi_persistent_audit_event_2020_02",
+            "jhi_persistent_audit_event_2020_03");
+        assertThat(monthlyAuditEventRepository.count().block()).isEqualTo(4);
+        assertThat(monthlyAuditEventRepository.countByAuditEventDateBetween(
+            Instant.parse("2020-02-01T00:00:00Z"), Instant.parse("2020-03-01T00:00:00Z")).block()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPagesSpanPartitions() {
+        PageRequest secondPage = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "auditEventDate"));
+
+        List<PersistentAuditEvent> events = monthlyAuditEventRepository.findAllBy(secondPage).collectList().block();
+
+        assertThat(events).extracting(PersistentAuditEvent::getPrincipal).containsExactly("february-1", "january");
+    }
+
+    @Test
+    public void testFindById() {
+        PersistentAuditEvent event = monthlyAuditEventRepository.findAllByAuditEventDateBetween(
+            JANUARY.minusSeconds(1), JANUARY.plusSeconds(1), PageRequest.of(0, 1)).blockFirst();
+
+        assertThat(event.getPrincipal()).isEqualTo("january");
+        assertThat(monthlyAuditEventRepository.findById(event.getId()).block().getPrincipal()).isEqualTo("january");
+    }
+
+    @Test
+    public void testDeleteDropsOldPartitions() {
+        monthlyAuditEventRepository.deleteByAuditEventDateBefore(FEBRUARY.plusMillis(500)).block();
+
+        List<String> collections = mongoTemplate.getCollectionNames().collectList().block();
+        assertThat(collections).doesNotContain("jhi_persistent_audit_event_2020_01");
+        assertThat(monthlyAuditEventRepository.findAllBy(PageRequest.of(0, 10, Sort.by("auditEventDate"))).collectList().block())
+            .extracting(PersistentAuditEvent::getPrincipal).containsExactly("february-2", "march");
+    }
+
+    private PersistentAuditEvent createAuditEvent(String principal, Instant date) {
+        PersistentAuditEvent auditEvent = new PersistentAuditEvent();
+        auditEvent.setPrincipal(principal);
+        auditEvent.setAuditEventType("test-type");
+        auditEvent.setAuditEventDate(date);
+        return auditEvent;
+    }
+}
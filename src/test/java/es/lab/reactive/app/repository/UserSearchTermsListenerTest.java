@@ -0,0 +1,22 @@
+package es.lab.reactive.app.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the search terms computed by the {@link UserSearchTermsListener}.
+ */
+public class UserSearchTermsListenerTest {
+
+    @Test
+    public void testGetSearchTerms() {
+        assertThat(UserSearchTermsListener.getSearchTerms("johndoe", "John.Doe@localhost", " Mary Ann ", "Doe"))
+            .containsExactlyInAnyOrder("johndoe", "john.doe@localhost", "mary ann", "mary", "ann", "doe");
+    }
+
+    @Test
+    public void testGetSearchTermsWithMissingFields() {
+        assertThat(UserSearchTermsListener.getSearchTerms("johndoe", null, "", null)).containsExactly("johndoe");
+    }
+}
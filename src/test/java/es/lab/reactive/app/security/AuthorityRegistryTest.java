@@ -0,0 +1,67 @@
+package es.lab.reactive.app.security;
+
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.repository.AuthorityRepository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the {@link AuthorityRegistry}.
+ */
+public class AuthorityRegistryTest {
+
+    private AuthorityRepository authorityRepository;
+
+    private AuthorityRegistry authorityRegistry;
+
+    @BeforeEach
+    public void setup() {
+        authorityRepository = mock(AuthorityRepository.class);
+        when(authorityRepository.findAll()).thenReturn(Flux.just(
+            createAuthority(AuthoritiesConstants.ADMIN, 0), createAuthority(AuthoritiesConstants.USER, 1)));
+        authorityRegistry = new AuthorityRegistry(authorityRepository);
+        authorityRegistry.refresh().block();
+    }
+
+    @Test
+    public void testGetAuthorityReturnsSharedInstances() {
+        assertThat(authorityRegistry.getAuthority(AuthoritiesConstants.USER)).isPresent();
+        assertThat(authorityRegistry.getAuthority(AuthoritiesConstants.USER).get())
+            .isSameAs(authorityRegistry.getAuthority(AuthoritiesConstants.USER).get());
+        assertThat(authorityRegistry.getAuthority("ROLE_UNKNOWN")).isNotPresent();
+        assertThat(authorityRegistry.getAuthorityNames()).containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+    }
+
+    @Test
+    public void testReloadsWhenAnAuthorityIsWritten() {
+        Authority authority = createAuthority("ROLE_MANAGER", 2);
+        when(authorityRepository.findAll()).thenReturn(Flux.just(
+            createAuthority(AuthoritiesConstants.ADMIN, 0), createAuthority(AuthoritiesConstants.USER, 1), authority));
+
+        authorityRegistry.onAfterSave(new AfterSaveEvent<>(new User(), new Document(), "jhi_user"));
+        assertThat(authorityRegistry.getAuthority("ROLE_MANAGER")).isNotPresent();
+
+        authorityRegistry.onAfterSave(new AfterSaveEvent<>(authority, new Document(), "jhi_authority"));
+        assertThat(authorityRegistry.getAuthority("ROLE_MANAGER")).contains(authority);
+
+        when(authorityRepository.findAll()).thenReturn(Flux.just(createAuthority(AuthoritiesConstants.ADMIN, 0)));
+        authorityRegistry.onAfterDelete(new AfterDeleteEvent<>(new Document(), Authority.class, "jhi_authority"));
+        assertThat(authorityRegistry.getAuthorityNames()).containsExactly(AuthoritiesConstants.ADMIN);
+    }
+
+    private static Authority createAuthority(String name, int ordinal) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        authority.setOrdinal(ordinal);
+        return authority;
+    }
+}
@@ -0,0 +1,47 @@
+package es.lab.reactive.app.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link TokenBuckets} utility class.
+ */
+public class TokenBucketsTest {
+
+    private static final long ONE_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    public void testThrottlesOnceCapacityIsUsed() {
+        TokenBuckets buckets = new TokenBuckets(2, 2, 1000);
+
+        assertThat(buckets.tryConsume("user", 0)).isTrue();
+        assertThat(buckets.tryConsume("user", 0)).isTrue();
+        assertThat(buckets.tryConsume("user", 0)).isFalse();
+        assertThat(buckets.tryConsume("admin", 0)).isTrue();
+    }
+
+    @Test
+    public void testRefillsOverTime() {
+        TokenBuckets buckets = new TokenBuckets(2, 2, 1000);
+        buckets.tryConsume("user", 0);
+        buckets.tryConsume("user", 0);
+
+        assertThat(buckets.tryConsume("user", ONE_MINUTE / 4)).isFalse();
+        assertThat(buckets.tryConsume("user", ONE_MINUTE / 2)).isTrue();
+        assertThat(buckets.tryConsume("user", ONE_MINUTE / 2)).isFalse();
+    }
+
+    @Test
+    public void testExpiresIdleBuckets() {
+        TokenBuckets buckets = new TokenBuckets(2, 2, 1000);
+        buckets.tryConsume("user", 0);
+        buckets.tryConsume("admin", ONE_MINUTE / 2);
+
+        buckets.expire(ONE_MINUTE);
+
+        assertThat(buckets.size()).isEqualTo(1);
+    }
+}
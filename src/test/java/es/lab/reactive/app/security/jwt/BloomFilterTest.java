@@ -0,0 +1,49 @@
+package es.lab.reactive.app.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testContainsAllInsertedValues() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString();
+            bloomFilter.put(values[i]);
+        }
+
+        for (String value : values) {
+            assertThat(bloomFilter.mightContain(value)).isTrue();
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysCloseToTarget() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (bloomFilter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter bloomFilter = new BloomFilter(10, 0.01);
+
+        assertThat(bloomFilter.mightContain("")).isFalse();
+        assertThat(bloomFilter.mightContain("token")).isFalse();
+    }
+}
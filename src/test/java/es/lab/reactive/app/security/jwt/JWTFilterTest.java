@@ -1,6 +1,11 @@
 package es.lab.reactive.app.security.jwt;
 
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.RevokedToken;
+import es.lab.reactive.app.repository.AuthorityRepository;
+import es.lab.reactive.app.repository.RevokedTokenRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.AuthorityRegistry;
 import io.github.jhipster.config.JHipsterProperties;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -19,23 +24,32 @@ import reactor.core.publisher.Mono;
 import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class JWTFilterTest {
 
     private TokenProvider tokenProvider;
 
+    private TokenRevocationService tokenRevocationService;
+
     private JWTFilter jwtFilter;
 
     @BeforeEach
     public void setup() {
         JHipsterProperties jHipsterProperties = new JHipsterProperties();
-        tokenProvider = new TokenProvider(jHipsterProperties);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(),
+            new AuthorityRegistry(mock(AuthorityRepository.class)));
         ReflectionTestUtils.setField(tokenProvider, "key",
             Keys.hmacShaKeyFor(Decoders.BASE64
                 .decode("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8")));
 
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
-        jwtFilter = new JWTFilter(tokenProvider);
+        RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+        when(revokedTokenRepository.save(any(RevokedToken.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, tokenProvider, new ApplicationProperties());
+        jwtFilter = new JWTFilter(tokenProvider, tokenRevocationService);
     }
 
     @Test
@@ -61,6 +75,29 @@ public class JWTFilterTest {
         ).block();
     }
 
+    @Test
+    public void testJWTFilterRevokedToken() {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "test-user",
+            "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+        String jwt = tokenProvider.createToken(authentication, false);
+        tokenRevocationService.revoke(jwt).block();
+        MockServerHttpRequest.BaseBuilder request = MockServerHttpRequest
+            .get("/api/test")
+            .header(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        jwtFilter.filter(
+            exchange,
+            it -> Mono.subscriberContext()
+                .flatMap(c -> ReactiveSecurityContextHolder.getContext())
+                .map(SecurityContext::getAuthentication)
+                .doOnSuccess(auth -> assertThat(auth).isNull())
+                .then()
+        ).block();
+    }
+
     @Test
     public void testJWTFilterInvalidToken() {
         String jwt = "wrong_jwt";
@@ -1,6 +1,10 @@
 package es.lab.reactive.app.security.jwt;
 
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.Authority;
+import es.lab.reactive.app.repository.AuthorityRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.security.AuthorityRegistry;
 
 import java.security.Key;
 import java.util.*;
@@ -18,19 +22,29 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import reactor.core.publisher.Flux;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class TokenProviderTest {
 
     private static final long ONE_MINUTE = 60000;
 
     private Key key;
+    private AuthorityRegistry authorityRegistry;
     private TokenProvider tokenProvider;
 
     @BeforeEach
     public void setup() {
-        tokenProvider = new TokenProvider( new JHipsterProperties());
+        AuthorityRepository authorityRepository = mock(AuthorityRepository.class);
+        when(authorityRepository.findAll()).thenReturn(Flux.just(
+            createAuthority(AuthoritiesConstants.ADMIN, 0), createAuthority(AuthoritiesConstants.USER, 1)));
+        authorityRegistry = new AuthorityRegistry(authorityRepository);
+        authorityRegistry.refresh().block();
+
+        tokenProvider = new TokenProvider( new JHipsterProperties(), new ApplicationProperties(), authorityRegistry);
         key = Keys.hmacShaKeyFor(Decoders.BASE64
             .decode("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8"));
 
@@ -67,6 +81,15 @@ public class TokenProviderTest {
         assertThat(isTokenValid).isEqualTo(false);
     }
 
+    @Test
+    public void testAccessTokenIsShortLived() {
+        ReflectionTestUtils.setField(tokenProvider, "accessTokenValidityInMilliseconds", -ONE_MINUTE);
+
+        String token = tokenProvider.createAccessToken(createAuthentication());
+
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(false);
+    }
+
     @Test
     public void testReturnFalseWhenJWTisUnsupported() {
         String unsupportedToken = createUnsupportedToken();
@@ -83,6 +106,52 @@ public class TokenProviderTest {
         assertThat(isTokenValid).isEqualTo(false);
     }
 
+    @Test
+    public void testAuthoritiesAreEncodedAsBitset() {
+        Collection<GrantedAuthority> authorities = Arrays.asList(
+            new SimpleGrantedAuthority(AuthoritiesConstants.USER), new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN));
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("admin", "admin", authorities), false);
+
+        Map<String, Object> claims = tokenProvider.getValidClaims(token);
+        assertThat(claims).containsKey("ab").doesNotContainKey("auth");
+        assertThat(((Number) claims.get("ab")).longValue()).isEqualTo(0b11L);
+
+        List<GrantedAuthority> decoded = new ArrayList<>(tokenProvider.getAuthentication(token).getAuthorities());
+        assertThat(decoded).containsExactlyInAnyOrderElementsOf(authorities);
+        assertThat(decoded)
+            .allMatch(authority -> authority == authorityRegistry.getGrantedAuthority(authority.getAuthority()));
+    }
+
+    @Test
+    public void testAuthoritiesWithoutOrdinalAreEncodedAsNames() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.getValidClaims(token)).containsEntry("auth", AuthoritiesConstants.ANONYMOUS).doesNotContainKey("ab");
+        List<GrantedAuthority> decoded = new ArrayList<>(tokenProvider.getAuthentication(token).getAuthorities());
+        assertThat(decoded).containsExactly(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
+    }
+
+    @Test
+    public void testTokenWithAuthorityNamesIsStillAccepted() {
+        String token = Jwts.builder()
+            .setSubject("admin")
+            .claim("auth", AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER)
+            .signWith(key, SignatureAlgorithm.HS512)
+            .setExpiration(new Date(new Date().getTime() + ONE_MINUTE))
+            .compact();
+
+        List<GrantedAuthority> decoded = new ArrayList<>(tokenProvider.getAuthentication(token).getAuthorities());
+        assertThat(decoded).containsExactly(
+            authorityRegistry.getGrantedAuthority(AuthoritiesConstants.ADMIN), authorityRegistry.getGrantedAuthority(AuthoritiesConstants.USER));
+    }
+
+    private Authority createAuthority(String name, int ordinal) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        authority.setOrdinal(ordinal);
+        return authority;
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
@@ -0,0 +1,44 @@
+package es.lab.reactive.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link AuditEventRingBuffer} utility class.
+ */
+public class AuditEventRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new AuditEventRingBuffer(3).capacity()).isEqualTo(4);
+        assertThat(new AuditEventRingBuffer(4).capacity()).isEqualTo(4);
+        assertThat(new AuditEventRingBuffer(256).capacity()).isEqualTo(256);
+    }
+
+    @Test
+    public void testGetLatestIsNewestFirst() {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(4);
+        buffer.add(createAuditEvent("user-0"));
+        buffer.add(createAuditEvent("user-1"));
+        buffer.add(createAuditEvent("user-2"));
+
+        assertThat(buffer.getLatest(10)).extracting(AuditEvent::getPrincipal).containsExactly("user-2", "user-1", "user-0");
+        assertThat(buffer.getLatest(2)).extracting(AuditEvent::getPrincipal).containsExactly("user-2", "user-1");
+    }
+
+    @Test
+    public void testOldestAreOverwritten() {
+        AuditEventRingBuffer buffer = new AuditEventRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(createAuditEvent("user-" + i));
+        }
+
+        assertThat(buffer.getLatest(10)).extracting(AuditEvent::getPrincipal).containsExactly("user-5", "user-4", "user-3", "user-2");
+    }
+
+    private AuditEvent createAuditEvent(String principal) {
+        return new AuditEvent(principal, "test-type");
+    }
+}
@@ -24,6 +24,9 @@ public class AuditEventServiceIT {
     @Autowired
     private PersistenceAuditEventRepository persistenceAuditEventRepository;
 
+    @Autowired
+    private AuditEventWriter auditEventWriter;
+
     @Autowired
     private JHipsterProperties jHipsterProperties;
 
@@ -53,6 +56,7 @@ public class AuditEventServiceIT {
 
     @Test
     public void verifyOldAuditEventsAreDeleted() {
+        auditEventWriter.flush().block();
         persistenceAuditEventRepository.deleteAll().block();
         persistenceAuditEventRepository.save(auditEventOld).block();
         persistenceAuditEventRepository.save(auditEventWithinRetention).block();
@@ -0,0 +1,116 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.PersistentAuditEvent;
+import es.lab.reactive.app.repository.AuditEventStatsRepository;
+import es.lab.reactive.app.repository.MonthlyAuditEventRepository;
+import es.lab.reactive.app.repository.PersistenceAuditEventRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the {@link AuditEventWriter} service.
+ */
+public class AuditEventWriterTest {
+
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private AuditEventStatsRepository auditEventStatsRepository;
+
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    public void setup() {
+        persistenceAuditEventRepository = mock(PersistenceAuditEventRepository.class);
+        when(persistenceAuditEventRepository.insert(anyList())).thenAnswer(invocation ->
+            Flux.fromIterable(invocation.<List<PersistentAuditEvent>>getArgument(0)));
+        auditEventStatsRepository = mock(AuditEventStatsRepository.class);
+        when(auditEventStatsRepository.increment(anyList())).thenReturn(Mono.empty());
+
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getAuditEvents().setQueueCapacity(3);
+        applicationProperties.getAuditEvents().setBatchSize(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushWritesInBatches() {
+        applicationProperties.getAuditEvents().setBatchSize(10);
+        AuditEventWriter writer = createWriter(ApplicationProperties.AuditEvents.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 3; i++) {
+            writer.write(createAuditEvent("user-" + i)).block();
+        }
+        verify(persistenceAuditEventRepository, never()).insert(anyList());
+
+        writer.flush().block();
+
+        ArgumentCaptor<List<PersistentAuditEvent>> batches = ArgumentCaptor.forClass(List.class);
+        verify(persistenceAuditEventRepository).insert(batches.capture());
+        assertThat(batches.getValue()).extracting(PersistentAuditEvent::getPrincipal).containsExactly("user-0", "user-1", "user-2");
+    }
+
+    @Test
+    public void testFullBatchTriggersWrite() {
+        AuditEventWriter writer = createWriter(ApplicationProperties.AuditEvents.OverflowPolicy.DROP_NEWEST);
+
+        writer.write(createAuditEvent("user-0")).block();
+        writer.write(createAuditEvent("user-1")).block();
+
+        verify(persistenceAuditEventRepository).insert(anyList());
+        verify(auditEventStatsRepository).increment(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDropOldestWhenQueueIsFull() {
+        applicationProperties.getAuditEvents().setBatchSize(10);
+        AuditEventWriter writer = createWriter(ApplicationProperties.AuditEvents.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 4; i++) {
+            writer.write(createAuditEvent("user-" + i)).block();
+        }
+
+        writer.flush().block();
+
+        ArgumentCaptor<List<PersistentAuditEvent>> batches = ArgumentCaptor.forClass(List.class);
+        verify(persistenceAuditEventRepository).insert(batches.capture());
+        assertThat(batches.getValue()).extracting(PersistentAuditEvent::getPrincipal).containsExactly("user-1", "user-2", "user-3");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteThroughWhenQueueIsFull() {
+        applicationProperties.getAuditEvents().setBatchSize(10);
+        AuditEventWriter writer = createWriter(ApplicationProperties.AuditEvents.OverflowPolicy.WRITE_THROUGH);
+        for (int i = 0; i < 4; i++) {
+            writer.write(createAuditEvent("user-" + i)).block();
+        }
+
+        ArgumentCaptor<List<PersistentAuditEvent>> batches = ArgumentCaptor.forClass(List.class);
+        verify(persistenceAuditEventRepository).insert(batches.capture());
+        assertThat(batches.getValue()).extracting(PersistentAuditEvent::getPrincipal).containsExactly("user-3");
+    }
+
+    private AuditEventWriter createWriter(ApplicationProperties.AuditEvents.OverflowPolicy overflowPolicy) {
+        applicationProperties.getAuditEvents().setOverflowPolicy(overflowPolicy);
+        return new AuditEventWriter(persistenceAuditEventRepository, mock(MonthlyAuditEventRepository.class), auditEventStatsRepository,
+            applicationProperties, new SimpleMeterRegistry());
+    }
+
+    private PersistentAuditEvent createAuditEvent(String principal) {
+        PersistentAuditEvent auditEvent = new PersistentAuditEvent();
+        auditEvent.setPrincipal(principal);
+        auditEvent.setAuditEventType("test-type");
+        return auditEvent;
+    }
+}
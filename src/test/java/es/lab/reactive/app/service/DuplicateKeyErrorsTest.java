@@ -0,0 +1,57 @@
+package es.lab.reactive.app.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link DuplicateKeyErrors} utility class.
+ */
+public class DuplicateKeyErrorsTest {
+
+    @Test
+    public void testGetIndexNameOfWrappedWriteException() {
+        MongoWriteException writeException = new MongoWriteException(new WriteError(11000,
+            "E11000 duplicate key error collection: reactiveApp.jhi_user index: email dup key: { email: \"john@localhost\" }",
+            new BsonDocument()), new ServerAddress());
+
+        assertThat(DuplicateKeyErrors.getIndexName(new DuplicateKeyException("Write failed", writeException))).contains("email");
+    }
+
+    @Test
+    public void testGetIndexNameOfOlderServerMessage() {
+        WriteError error = new WriteError(11000,
+            "E11000 duplicate key error index: reactiveApp.jhi_user.$login dup key: { : \"john\" }", new BsonDocument());
+
+        assertThat(DuplicateKeyErrors.getIndexName(error)).contains("login");
+    }
+
+    @Test
+    public void testGetIndexNameOfBulkWriteException() {
+        BulkWriteError error = new BulkWriteError(11001,
+            "E11000 duplicate key error collection: reactiveApp.jhi_user index: login dup key: { login: \"john\" }",
+            new BsonDocument(), 3);
+        MongoBulkWriteException bulkWriteException = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+            Collections.singletonList(error), null, new ServerAddress());
+
+        assertThat(DuplicateKeyErrors.getIndexName(bulkWriteException)).contains("login");
+    }
+
+    @Test
+    public void testGetIndexNameOfOtherError() {
+        WriteError error = new WriteError(121, "Document failed validation index: login dup key", new BsonDocument());
+
+        assertThat(DuplicateKeyErrors.getIndexName(error)).isEmpty();
+        assertThat(DuplicateKeyErrors.getIndexName(new IllegalStateException("index: login dup key"))).isEmpty();
+    }
+}
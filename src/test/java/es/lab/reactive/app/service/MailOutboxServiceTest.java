@@ -0,0 +1,61 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.OutboxMail;
+import es.lab.reactive.app.repository.OutboxMailRepository;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.javamail.JavaMailSender;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the {@link MailOutboxService} retry policy and scheduling.
+ */
+public class MailOutboxServiceTest {
+
+    @Test
+    public void testBackoffDoublesUpToTheMaximum() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMail().getOutbox().setInitialBackoffMs(1000);
+        applicationProperties.getMail().getOutbox().setMaxBackoffMs(5000);
+        MailOutboxService mailOutboxService = new MailOutboxService(mock(OutboxMailRepository.class), mock(ReactiveMongoTemplate.class),
+            mock(JavaMailSender.class), new JHipsterProperties(), applicationProperties, new SimpleMeterRegistry());
+
+        assertThat(mailOutboxService.getBackoff(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(mailOutboxService.getBackoff(2)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(mailOutboxService.getBackoff(3)).isEqualTo(Duration.ofSeconds(4));
+        assertThat(mailOutboxService.getBackoff(4)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(mailOutboxService.getBackoff(100)).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testScheduledDeliveryDoesNotWaitForTheRunningDelivery() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMail().getOutbox().setConcurrency(2);
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        // An unresponsive database or SMTP server: the delivery never completes
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(OutboxMail.class)))
+            .thenReturn(Mono.never());
+        MailOutboxService mailOutboxService = new MailOutboxService(mock(OutboxMailRepository.class), mongoTemplate,
+            mock(JavaMailSender.class), new JHipsterProperties(), applicationProperties, new SimpleMeterRegistry());
+
+        mailOutboxService.scheduledDelivery();
+        mailOutboxService.scheduledDelivery();
+
+        // One claim per worker of the first delivery, the second one was skipped
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(OutboxMail.class));
+    }
+}
@@ -3,8 +3,12 @@ package es.lab.reactive.app.service;
 import es.lab.reactive.app.config.Constants;
 
 import es.lab.reactive.app.ReactiveApp;
+import es.lab.reactive.app.config.ApplicationProperties;
+import es.lab.reactive.app.domain.OutboxMail;
 import es.lab.reactive.app.domain.User;
+import es.lab.reactive.app.repository.OutboxMailRepository;
 import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -14,6 +18,7 @@ import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.MessageSource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.thymeleaf.spring5.SpringTemplateEngine;
@@ -29,6 +34,8 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -60,24 +67,39 @@ public class MailServiceIT {
     @Autowired
     private SpringTemplateEngine templateEngine;
 
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
     @Spy
     private JavaMailSenderImpl javaMailSender;
 
     @Captor
     private ArgumentCaptor<MimeMessage> messageCaptor;
 
+    private MailOutboxService mailOutboxService;
+
     private MailService mailService;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        mailService = new MailService(jHipsterProperties, javaMailSender, messageSource, templateEngine);
+        doNothing().when(javaMailSender).send(any(MimeMessage[].class));
+        outboxMailRepository.deleteAll().block();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMail().getOutbox().setConcurrency(1);
+        mailOutboxService = new MailOutboxService(outboxMailRepository, mongoTemplate, javaMailSender, jHipsterProperties,
+            applicationProperties, new SimpleMeterRegistry());
+        mailService = new MailService(jHipsterProperties, mailOutboxService, messageSource, templateEngine, applicationProperties,
+            new SimpleMeterRegistry());
     }
 
     @Test
     public void testSendEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
@@ -90,7 +112,8 @@ public class MailServiceIT {
 
     @Test
     public void testSendHtmlEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
@@ -103,7 +126,8 @@ public class MailServiceIT {
 
     @Test
     public void testSendMultipartEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
@@ -120,7 +144,8 @@ public class MailServiceIT {
 
     @Test
     public void testSendMultipartHtmlEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
@@ -141,7 +166,8 @@ public class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         user.setLangKey("en");
-        mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
+        mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title").block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("test title");
@@ -157,7 +183,8 @@ public class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendActivationEmail(user);
+        mailService.sendActivationEmail(user).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
@@ -172,7 +199,8 @@ public class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendCreationEmail(user);
+        mailService.sendCreationEmail(user).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
@@ -187,7 +215,8 @@ public class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendPasswordResetMail(user);
+        mailService.sendPasswordResetMail(user).block();
+        mailOutboxService.deliverDueMails().block();
         verify(javaMailSender).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
@@ -198,12 +227,29 @@ public class MailServiceIT {
 
     @Test
     public void testSendEmailWithException() {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
+        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage[].class));
         try {
-            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block();
+            mailOutboxService.deliverDueMails().block();
         } catch (Exception e) {
             fail("Exception shouldn't have been thrown");
         }
+        List<OutboxMail> mails = outboxMailRepository.findAll().collectList().block();
+        assertThat(mails).hasSize(1);
+        assertThat(mails.get(0).getAttempts()).isEqualTo(1);
+        assertThat(mails.get(0).getNextAttemptAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    public void testSendEmailsInOneBatch() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("user-" + i + "@example.com", "testSubject", "testContent", false, false).block();
+        }
+        mailOutboxService.deliverDueMails().block();
+        verify(javaMailSender).send(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues()).hasSize(3);
+        assertThat(messageCaptor.getAllValues().get(2).getAllRecipients()[0].toString()).isEqualTo("user-2@example.com");
+        assertThat(outboxMailRepository.count().block()).isZero();
     }
 
     @Test
@@ -213,7 +259,8 @@ public class MailServiceIT {
         user.setEmail("john.doe@example.com");
         for (String langKey : languages) {
             user.setLangKey(langKey);
-            mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
+            mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title").block();
+            mailOutboxService.deliverDueMails().block();
             verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
             MimeMessage message = messageCaptor.getValue();
 
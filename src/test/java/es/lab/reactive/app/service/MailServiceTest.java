@@ -0,0 +1,89 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.config.ApplicationProperties;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.MessageSource;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the {@link MailService} pipeline, with the outbox mocked.
+ */
+public class MailServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private MailOutboxService mailOutboxService;
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        mailOutboxService = mock(MailOutboxService.class);
+        applicationProperties = new ApplicationProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testSendEmailCompletesOnceQueued() {
+        when(mailOutboxService.enqueue(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean())).thenReturn(Mono.empty());
+
+        createMailService().sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block(TIMEOUT);
+
+        verify(mailOutboxService).enqueue("john.doe@example.com", "testSubject", "testContent", false, false);
+        assertThat(meterRegistry.get("mail.requests.queued").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.requests.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    public void testFailuresAreNotPropagated() {
+        when(mailOutboxService.enqueue(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean()))
+            .thenReturn(Mono.error(new IllegalStateException("Outbox unavailable")));
+
+        createMailService().sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block(TIMEOUT);
+
+        assertThat(meterRegistry.get("mail.requests.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTimeout() {
+        applicationProperties.getMail().setTimeoutMs(50);
+        when(mailOutboxService.enqueue(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean())).thenReturn(Mono.never());
+
+        createMailService().sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block(TIMEOUT);
+
+        assertThat(meterRegistry.get("mail.requests.timed.out").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() {
+        applicationProperties.getMail().setQueueCapacity(1);
+        when(mailOutboxService.enqueue(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean())).thenReturn(Mono.never());
+        MailService mailService = createMailService();
+
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).subscribe();
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false).block(TIMEOUT);
+
+        verify(mailOutboxService, never()).enqueue(eq("jane.doe@example.com"), anyString(), anyString(), anyBoolean(), anyBoolean());
+        assertThat(meterRegistry.get("mail.requests.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private MailService createMailService() {
+        return new MailService(new JHipsterProperties(), mailOutboxService, mock(MessageSource.class), mock(SpringTemplateEngine.class),
+            applicationProperties, meterRegistry);
+    }
+}
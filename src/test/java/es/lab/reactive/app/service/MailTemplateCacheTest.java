@@ -0,0 +1,128 @@
+package es.lab.reactive.app.service;
+
+import es.lab.reactive.app.domain.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link MailTemplateCache} utility class.
+ */
+public class MailTemplateCacheTest {
+
+    private static final String BASE_URL = "http://127.0.0.1:8080";
+
+    private static final String[] TEMPLATES = {"mail/activationEmail", "mail/creationEmail", "mail/passwordResetEmail"};
+
+    private final AtomicInteger greetingLookups = new AtomicInteger();
+
+    private SpringTemplateEngine templateEngine;
+
+    private MailTemplateCache mailTemplateCache;
+
+    @BeforeEach
+    public void setup() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        StaticMessageSource messageSource = new StaticMessageSource() {
+            @Override
+            protected MessageFormat resolveCode(String code, Locale locale) {
+                if (code.equals("email.activation.greeting")) {
+                    greetingLookups.incrementAndGet();
+                }
+                return super.resolveCode(code, locale);
+            }
+        };
+        messageSource.setUseCodeAsDefaultMessage(true);
+        messageSource.addMessage("email.activation.greeting", Locale.ENGLISH, "Dear {0}");
+        messageSource.addMessage("email.activation.greeting", Locale.forLanguageTag("es"), "Estimado {0}");
+        messageSource.addMessage("email.reset.greeting", Locale.ENGLISH, "Dear {0}");
+        messageSource.addMessage("email.reset.title", Locale.ENGLISH, "Password reset");
+        messageSource.addMessage("email.reset.title", Locale.forLanguageTag("es"), "Reinicio de contraseña");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+        mailTemplateCache = new MailTemplateCache(templateEngine, messageSource, BASE_URL);
+    }
+
+    @Test
+    public void testRenderMatchesTemplateEngine() {
+        User user = createUser("john");
+        for (String langKey : new String[] {"es", "en"}) {
+            Locale locale = Locale.forLanguageTag(langKey);
+            for (String template : TEMPLATES) {
+                assertThat(mailTemplateCache.render(template, user, locale)).isEqualTo(process(template, user, locale));
+            }
+        }
+    }
+
+    @Test
+    public void testTemplateIsOnlyProcessedToPrepareTheSkeleton() {
+        Locale locale = Locale.ENGLISH;
+
+        String john = mailTemplateCache.render(TEMPLATES[0], createUser("john"), locale);
+        String jane = mailTemplateCache.render(TEMPLATES[0], createUser("jane"), locale);
+
+        // Once for the skeleton, once to check it
+        assertThat(greetingLookups).hasValue(2);
+        assertThat(john).contains("Dear john").contains("?key=12345678901234567890");
+        assertThat(jane).contains("Dear jane");
+    }
+
+    @Test
+    public void testRenderEscapesLikeTemplateEngine() {
+        User user = createUser("john&<jane>");
+        Locale locale = Locale.ENGLISH;
+
+        String content = mailTemplateCache.render(TEMPLATES[0], user, locale);
+
+        assertThat(content).isEqualTo(process(TEMPLATES[0], user, locale));
+        assertThat(content).contains("john&amp;&lt;jane&gt;");
+    }
+
+    @Test
+    public void testRenderWithMissingField() {
+        User user = createUser("john");
+        user.setActivationKey(null);
+        Locale locale = Locale.ENGLISH;
+
+        assertThat(mailTemplateCache.render(TEMPLATES[0], user, locale)).isEqualTo(process(TEMPLATES[0], user, locale));
+    }
+
+    @Test
+    public void testSubjectIsLocalized() {
+        assertThat(mailTemplateCache.getSubject("email.reset.title", Locale.ENGLISH)).isEqualTo("Password reset");
+        assertThat(mailTemplateCache.getSubject("email.reset.title", Locale.forLanguageTag("es"))).isEqualTo("Reinicio de contraseña");
+    }
+
+    private String process(String template, User user, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", BASE_URL);
+        return templateEngine.process(template, context);
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail("john.doe@example.com");
+        user.setActivationKey("12345678901234567890");
+        user.setResetKey("09876543210987654321");
+        return user;
+    }
+}
@@ -0,0 +1,29 @@
+package es.lab.reactive.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Test class for the CSV parsing of the {@link UserProvisioningService}.
+ */
+public class UserProvisioningServiceTest {
+
+    @Test
+    public void testParseCsvLine() {
+        assertThat(UserProvisioningService.parseCsvLine("johndoe,john@localhost,,Doe"))
+            .containsExactly("johndoe", "john@localhost", "", "Doe");
+    }
+
+    @Test
+    public void testParseCsvLineWithQuotedFields() {
+        assertThat(UserProvisioningService.parseCsvLine("johndoe,\"Doe, John\",\"The \"\"Doe\"\"\""))
+            .containsExactly("johndoe", "Doe, John", "The \"Doe\"");
+    }
+
+    @Test
+    public void testParseCsvLineWithUnterminatedQuote() {
+        assertThatIllegalArgumentException().isThrownBy(() -> UserProvisioningService.parseCsvLine("johndoe,\"Doe"));
+    }
+}
@@ -75,6 +75,28 @@ public class UserServiceIT {
         assertThat(maybeUser.orElse(null).getResetKey()).isNotNull();
     }
 
+    @Test
+    public void assertThatRepeatedPasswordResetRequestsReuseTheResetKey() {
+        userRepository.save(user).block();
+
+        User firstRequest = userService.requestPasswordReset(user.getEmail()).block();
+        Optional<User> maybeUser = userService.requestPasswordReset(user.getEmail()).blockOptional();
+        assertThat(maybeUser).isNotPresent();
+        assertThat(userRepository.findOneByLogin(DEFAULT_LOGIN).block().getResetKey()).isEqualTo(firstRequest.getResetKey());
+    }
+
+    @Test
+    public void assertThatPasswordResetRequestsAfterTheWindowGetANewResetKey() {
+        user.setResetKey(RandomUtil.generateResetKey());
+        user.setResetDate(Instant.now().minus(1, ChronoUnit.HOURS));
+        userRepository.save(user).block();
+
+        Optional<User> maybeUser = userService.requestPasswordReset(user.getEmail()).blockOptional();
+        assertThat(maybeUser).isPresent();
+        assertThat(maybeUser.get().getResetKey()).isNotEqualTo(user.getResetKey());
+        assertThat(maybeUser.get().getResetDate()).isAfter(user.getResetDate());
+    }
+
     @Test
     public void assertThatOnlyActivatedUserCanRequestPasswordReset() {
         user.setActivated(false);
@@ -139,14 +161,8 @@ public class UserServiceIT {
         User dbUser = userRepository.save(user).block();
         dbUser.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
         userRepository.save(user).block();
-        Instant threeDaysAgo = now.minus(3, ChronoUnit.DAYS);
-        List<User> users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
-            .collectList().block();
-        assertThat(users).isNotEmpty();
-        userService.removeNotActivatedUsers();
-        users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
-            .collectList().block();
-        assertThat(users).isEmpty();
+        assertThat(userService.removeNotActivatedUsersReactively().block()).isGreaterThanOrEqualTo(1);
+        assertThat(userRepository.findById(dbUser.getId()).blockOptional()).isEmpty();
     }
 
     @Test
@@ -156,15 +172,23 @@ public class UserServiceIT {
         User dbUser = userRepository.save(user).block();
         dbUser.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
         userRepository.save(user).block();
-        Instant threeDaysAgo = now.minus(3, ChronoUnit.DAYS);
-        List<User> users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
-            .collectList().block();
-        assertThat(users).isEmpty();
-        userService.removeNotActivatedUsers();
+        userService.removeNotActivatedUsersReactively().block();
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId()).blockOptional();
         assertThat(maybeDbUser).contains(dbUser);
     }
 
+    @Test
+    public void assertThatResetKeysOlderThan24HoursAreRemoved() {
+        user.setResetKey(RandomUtil.generateResetKey());
+        user.setResetDate(Instant.now().minus(25, ChronoUnit.HOURS));
+        User dbUser = userRepository.save(user).block();
+
+        assertThat(userService.removeExpiredResetKeys().block()).isEqualTo(1);
+        User updatedUser = userRepository.findById(dbUser.getId()).block();
+        assertThat(updatedUser.getResetKey()).isNull();
+        assertThat(updatedUser.getResetDate()).isNull();
+    }
+
     @Test
     public void assertThatAnonymousUserIsNotGet() {
         user.setLogin(Constants.ANONYMOUS_USER);
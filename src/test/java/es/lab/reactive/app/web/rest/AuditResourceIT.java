@@ -2,8 +2,11 @@ package es.lab.reactive.app.web.rest;
 
 import es.lab.reactive.app.ReactiveApp;
 import es.lab.reactive.app.domain.PersistentAuditEvent;
+import es.lab.reactive.app.repository.AuditEventStatsRepository;
 import es.lab.reactive.app.repository.PersistenceAuditEventRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
+import es.lab.reactive.app.service.AuditEventService;
+import es.lab.reactive.app.service.AuditEventWriter;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +18,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.time.Instant;
+import java.util.Arrays;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.hamcrest.Matchers.hasItem;
@@ -35,13 +39,23 @@ public class AuditResourceIT {
     @Autowired
     private PersistenceAuditEventRepository auditEventRepository;
 
+    @Autowired
+    private AuditEventStatsRepository auditEventStatsRepository;
+
     private PersistentAuditEvent auditEvent;
 
+    @Autowired
+    private AuditEventWriter auditEventWriter;
+
+    @Autowired
+    private AuditEventService auditEventService;
+
     @Autowired
     private WebTestClient webTestClient;
 
     @BeforeEach
     public void initTest() {
+        auditEventWriter.flush().block();
         auditEventRepository.deleteAll().block();
         auditEvent = new PersistentAuditEvent();
         auditEvent.setAuditEventType(SAMPLE_TYPE);
@@ -62,6 +76,38 @@ public class AuditResourceIT {
             .expectBody().jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL));
     }
 
+    @Test
+    public void getAuditsWithCursor() {
+        // Initialize the database
+        PersistentAuditEvent olderAuditEvent = new PersistentAuditEvent();
+        olderAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        olderAuditEvent.setPrincipal("older-principal");
+        olderAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP.minusSeconds(60));
+        auditEventRepository.save(olderAuditEvent).block();
+        auditEventRepository.save(auditEvent).block();
+
+        // Get the first page, which has the newest audit event
+        String nextCursor = webTestClient.get().uri("/management/audits?cursor=&size=1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals("X-Total-Count", "2")
+            .expectBody().jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL))
+            .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        // Get the second page
+        webTestClient.get().uri("/management/audits?cursor={cursor}&size=1", nextCursor)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.[*].principal").value(hasItem("older-principal"));
+    }
+
+    @Test
+    public void getAuditsWithInvalidCursor() {
+        webTestClient.get().uri("/management/audits?cursor=invalid")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
     @Test
     public void getAudit() {
         // Initialize the database
@@ -92,6 +138,38 @@ public class AuditResourceIT {
             .expectBody().jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL));
     }
 
+    @Test
+    public void getAuditsByDateWithCursor() {
+        // Initialize the database, with an audit event outside of the period
+        PersistentAuditEvent olderAuditEvent = new PersistentAuditEvent();
+        olderAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        olderAuditEvent.setPrincipal("older-principal");
+        olderAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP.minusSeconds(60));
+        PersistentAuditEvent outsideAuditEvent = new PersistentAuditEvent();
+        outsideAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        outsideAuditEvent.setPrincipal("outside-principal");
+        outsideAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP.minusSeconds(3 * SECONDS_PER_DAY));
+        auditEventRepository.saveAll(Arrays.asList(outsideAuditEvent, olderAuditEvent, auditEvent)).blockLast();
+
+        String fromDate = SAMPLE_TIMESTAMP.minusSeconds(SECONDS_PER_DAY).toString().substring(0, 10);
+        String toDate = SAMPLE_TIMESTAMP.plusSeconds(SECONDS_PER_DAY).toString().substring(0, 10);
+
+        // Get the first page, which has the newest audit event
+        String nextCursor = webTestClient.get().uri("/management/audits?fromDate={fromDate}&toDate={toDate}&cursor=&size=1", fromDate, toDate)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals("X-Total-Count", "2")
+            .expectBody().jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL))
+            .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        // Get the second page, the last one in the period
+        webTestClient.get().uri("/management/audits?fromDate={fromDate}&toDate={toDate}&cursor={cursor}&size=1", fromDate, toDate, nextCursor)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.[*].principal").value(hasItem("older-principal"))
+            .jsonPath("$.length()").isEqualTo(1);
+    }
+
     @Test
     public void getNonExistingAuditsByDate() {
         // Initialize the database
@@ -109,6 +187,43 @@ public class AuditResourceIT {
             .expectHeader().valueEquals("X-Total-Count", "0");
     }
 
+    @Test
+    public void getAuditStats() {
+        // Initialize the database
+        auditEventStatsRepository.deleteByHourBefore(SAMPLE_TIMESTAMP.plusSeconds(SECONDS_PER_DAY)).block();
+        PersistentAuditEvent otherAuditEvent = new PersistentAuditEvent();
+        otherAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        otherAuditEvent.setPrincipal("other-principal");
+        otherAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP);
+        auditEventStatsRepository.increment(Arrays.asList(auditEvent, auditEvent, otherAuditEvent)).block();
+
+        String fromDate = SAMPLE_TIMESTAMP.toString().substring(0, 10);
+        String toDate = SAMPLE_TIMESTAMP.toString().substring(0, 10);
+
+        // Get the hourly counts of the sample principal
+        webTestClient.get().uri("/management/audits/stats?fromDate={fromDate}&toDate={toDate}&type={type}&principal={principal}",
+            fromDate, toDate, SAMPLE_TYPE, SAMPLE_PRINCIPAL)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$.[0].hour").isEqualTo("2015-08-04T10:00:00Z")
+            .jsonPath("$.[0].principal").isEqualTo(SAMPLE_PRINCIPAL)
+            .jsonPath("$.[0].count").isEqualTo(2);
+    }
+
+    @Test
+    public void getRecentAudits() {
+        auditEventService.saveAuthenticationSuccess("recent-principal").block();
+
+        webTestClient.get().uri("/management/audits/recent?limit=5")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody().jsonPath("$.[0].principal").isEqualTo("recent-principal");
+    }
+
     @Test
     public void getNonExistingAudit() {
         // Get the audit
@@ -4,6 +4,7 @@ import es.lab.reactive.app.ReactiveApp;
 import es.lab.reactive.app.domain.User;
 import es.lab.reactive.app.repository.UserRepository;
 import es.lab.reactive.app.web.rest.vm.LoginVM;
+import es.lab.reactive.app.web.rest.vm.RefreshTokenVM;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -12,6 +13,8 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * Integration tests for the {@link UserJWTController} REST controller.
  */
@@ -75,6 +78,87 @@ public class UserJWTControllerIT {
             .jsonPath("$.id_token").isNotEmpty();
     }
 
+    @Test
+    public void testRevokedTokenIsRejected() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-revoke");
+        user.setEmail("user-jwt-controller-revoke@example.com");
+        user.setActivated(true);
+        user.setPassword(passwordEncoder.encode("test"));
+
+        userRepository.save(user).block();
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-revoke");
+        login.setPassword("test");
+        String authorization = webTestClient.post().uri("/api/authenticate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(login))
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getFirst("Authorization");
+
+        webTestClient.get().uri("/api/account")
+            .header("Authorization", authorization)
+            .exchange()
+            .expectStatus().isOk();
+
+        webTestClient.post().uri("/api/authenticate/revoke")
+            .header("Authorization", authorization)
+            .exchange()
+            .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/account")
+            .header("Authorization", authorization)
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void testRefreshToken() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-refresh");
+        user.setEmail("user-jwt-controller-refresh@example.com");
+        user.setActivated(true);
+        user.setPassword(passwordEncoder.encode("test"));
+
+        userRepository.save(user).block();
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-refresh");
+        login.setPassword("test");
+        RefreshTokenVM refreshToken = webTestClient.post().uri("/api/authenticate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(login))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(RefreshTokenVM.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(refreshToken.getRefreshToken()).isNotEmpty();
+
+        webTestClient.post().uri("/api/authenticate/refresh")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(refreshToken))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueMatches("Authorization", "Bearer .+")
+            .expectBody()
+            .jsonPath("$.id_token").isNotEmpty()
+            .jsonPath("$.refresh_token").isNotEmpty();
+
+        // A refresh token can only be used once
+        webTestClient.post().uri("/api/authenticate/refresh")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(refreshToken))
+            .exchange()
+            .expectStatus().isUnauthorized()
+            .expectHeader().doesNotExist("Authorization");
+    }
+
     @Test
     public void testAuthorizeFails() throws Exception {
         LoginVM login = new LoginVM();
@@ -1,11 +1,13 @@
 package es.lab.reactive.app.web.rest;
 
 import es.lab.reactive.app.ReactiveApp;
+import es.lab.reactive.app.config.Constants;
 import es.lab.reactive.app.domain.Authority;
 import es.lab.reactive.app.domain.User;
 import es.lab.reactive.app.repository.UserRepository;
 import es.lab.reactive.app.security.AuthoritiesConstants;
 import es.lab.reactive.app.service.dto.UserDTO;
+import es.lab.reactive.app.service.dto.UserProvisioningResultDTO;
 import es.lab.reactive.app.service.mapper.UserMapper;
 import es.lab.reactive.app.web.rest.vm.ManagedUserVM;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -16,6 +18,7 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.time.Instant;
@@ -127,6 +130,37 @@ public class UserResourceIT {
         });
     }
 
+    @Test
+    public void createUsersInBulk() throws Exception {
+        userRepository.save(user).block();
+        String csv = "login,email,firstName,authorities\n" +
+            "alice,Alice@localhost,Alice," + AuthoritiesConstants.USER + "\n" +
+            "\n" +
+            DEFAULT_LOGIN + ",other@localhost,John,\n" +
+            "bob,alice@localhost,Bob,\n" +
+            "not a login,carol@localhost,Carol,\n";
+
+        List<Map> results = webTestClient.post().uri("/api/admin/users/bulk")
+            .contentType(MediaType.valueOf("text/csv"))
+            .accept(MediaType.APPLICATION_STREAM_JSON)
+            .bodyValue(csv)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(Map.class).getResponseBody()
+            .collectList().block();
+
+        assertThat(results).extracting(result -> ((Number) result.get("row")).longValue()).containsExactly(2L, 4L, 5L, 6L);
+        assertThat(results).extracting(result -> result.get("status")).containsExactly(
+            UserProvisioningResultDTO.Status.CREATED.name(), UserProvisioningResultDTO.Status.LOGIN_ALREADY_USED.name(),
+            UserProvisioningResultDTO.Status.EMAIL_ALREADY_USED.name(), UserProvisioningResultDTO.Status.INVALID.name());
+        User alice = userRepository.findOneByLogin("alice").block();
+        assertThat(alice.getEmail()).isEqualTo("alice@localhost");
+        assertThat(alice.getActivated()).isTrue();
+        assertThat(alice.getAuthorities()).extracting(Authority::getName).containsExactly(AuthoritiesConstants.USER);
+        // Their first password reset request issues the reset key, and sends it
+        assertThat(alice.getResetKey()).isNull();
+    }
+
     @Test
     public void createUserWithExistingId() throws Exception {
         int databaseSizeBeforeCreate = userRepository.findAll()
@@ -235,6 +269,29 @@ public class UserResourceIT {
     }
 
 
+    @Test
+    public void getUsersWithCursor() {
+        // Initialize the database
+        userRepository.save(user).block();
+
+        // Walk through all the pages, the user must appear exactly once
+        List<String> logins = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            FluxExchangeResult<UserDTO> result = webTestClient.get().uri("/api/users?cursor={cursor}&size=2", cursor)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserDTO.class);
+            result.getResponseBody().map(UserDTO::getLogin).toStream().forEach(logins::add);
+            cursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+        }
+
+        assertThat(logins).containsOnlyOnce(DEFAULT_LOGIN);
+        assertThat(logins).isSorted();
+        assertThat(logins).doesNotContain(Constants.ANONYMOUS_USER);
+    }
+
     @Test
     public void getUser() {
         // Initialize the database
@@ -255,6 +312,37 @@ public class UserResourceIT {
 
     }
 
+    @Test
+    public void searchUsers() {
+        // Initialize the database
+        userRepository.save(user).block();
+
+        // Search the user by a prefix of its last name, in another case
+        List<String> logins = webTestClient.get().uri("/api/users/_search?q={q}&size=5", DEFAULT_LASTNAME.substring(0, 3).toUpperCase())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(UserDTO.class).getResponseBody()
+            .map(UserDTO::getLogin).collectList().block();
+        assertThat(logins).containsExactly(DEFAULT_LOGIN);
+
+        // Regular expression characters are matched literally
+        webTestClient.get().uri("/api/users/_search?q={q}", ".*")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(UserDTO.class).hasSize(0);
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.USER)
+    public void searchUsersIsForbiddenToUsers() {
+        webTestClient.get().uri("/api/users/_search?q={q}", DEFAULT_LASTNAME.substring(0, 3))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
     @Test
     public void getNonExistingUser() {
         webTestClient.get().uri("/api/users/unknown")